@@ -0,0 +1,36 @@
+package com.reactivespring.config;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+
+// smile (binary json) is registered after json, so it is only used when a caller asks for it
+@Configuration
+public class CodecConfig {
+  // without explicit mime types the jackson codecs would claim application/json as well
+  private static final MimeType[] SMILE_MIME_TYPES = {
+    new MimeType("application", "x-jackson-smile"), new MimeType("application", "*+x-jackson-smile")
+  };
+
+  // same spring.jackson settings as the json ObjectMapper
+  @Bean
+  public CodecCustomizer smileCodecCustomizer(
+      List<Jackson2ObjectMapperBuilderCustomizer> builderCustomizers) {
+    var builder = Jackson2ObjectMapperBuilder.smile();
+    builderCustomizers.forEach(customizer -> customizer.customize(builder));
+    var smileMapper = builder.build();
+    return configurer -> {
+      configurer.defaultCodecs().jackson2SmileEncoder(
+          new Jackson2SmileEncoder(smileMapper, SMILE_MIME_TYPES));
+      configurer.defaultCodecs().jackson2SmileDecoder(
+          new Jackson2SmileDecoder(smileMapper, SMILE_MIME_TYPES));
+    };
+  }
+}
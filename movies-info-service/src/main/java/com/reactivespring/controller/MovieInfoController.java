@@ -1,17 +1,22 @@
 package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoEventLog;
 import com.reactivespring.service.MovieInfoSerivce;
+import com.reactivespring.util.SignalLogger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.util.Set;
+import java.util.TreeSet;
 
 @RestController
 @RequestMapping("/v1")
@@ -19,13 +24,16 @@ import javax.validation.Valid;
 public class MovieInfoController {
 
   private final MovieInfoSerivce movieInfoSerivce;
-
-  Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().latest();
-  //  Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().all();
+  private final MovieInfoEventLog movieInfoEventLog;
+  private final SignalLogger signalLogger;
 
   @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-  public Flux<MovieInfo> getMovieInfoById() {
-    return movieInfoSink.asFlux().log();
+  public Flux<MovieInfoEvent> getMovieInfoById(
+      @RequestParam(value = "since", required = false) Long since,
+      @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+    return movieInfoEventLog
+        .events(since != null ? since : lastEventId)
+        .transform(signalLogger.flux("movieinfos.stream"));
   }
 
   @PostMapping("/movieinfos")
@@ -33,26 +41,42 @@ public class MovieInfoController {
   public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
     return movieInfoSerivce
         .addMovieInfo(movieInfo)
-        .doOnNext(savedMovieInfo -> movieInfoSink.tryEmitNext(savedMovieInfo))
-        .log();
+        .doOnNext(movieInfoEventLog::publish)
+        .transform(signalLogger.mono("movieinfos.add"));
   }
 
   @GetMapping("/movieinfos")
   public Flux<MovieInfo> getAllMovieInfos(
-      @RequestParam(value = "year", required = false) Integer year) {
+      @RequestParam(value = "year", required = false) Integer year,
+      @RequestParam(value = "page", required = false) Integer page,
+      @RequestParam(value = "size", defaultValue = "100") Integer size,
+      @RequestParam(value = "fields", required = false) Set<String> fields) {
+    var projection = projection(fields);
     if (year != null) {
-      return movieInfoSerivce.getMovieInfoByYear(year).log();
+      return movieInfoSerivce
+          .getMovieInfoByYear(year, projection)
+          .transform(signalLogger.flux("movieinfos.byYear"));
+    }
+    if (page != null) {
+      return movieInfoSerivce
+          .getAllMovieInfos(page, size, projection)
+          .transform(signalLogger.flux("movieinfos.page"));
     }
-    return movieInfoSerivce.getAllMovieInfos().log();
+    return movieInfoSerivce
+        .getAllMovieInfos(projection)
+        .transform(signalLogger.flux("movieinfos.all"));
   }
 
+  // the result handler answers a matching If-None-Match with 304 and no body
   @GetMapping("/movieinfos/{id}")
-  public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
+  public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(
+      @PathVariable String id,
+      @RequestParam(value = "fields", required = false) Set<String> fields) {
     return movieInfoSerivce
-        .getMovieInfoById(id)
-        .map(ResponseEntity.ok()::body)
+        .getMovieInfoById(id, projection(fields))
+        .map(movieInfo -> ResponseEntity.ok().eTag(movieInfo.etag()).body(movieInfo))
         .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-        .log();
+        .transform(signalLogger.mono("movieinfos.byId"));
   }
 
   @PutMapping("/movieinfos/{id}")
@@ -60,14 +84,30 @@ public class MovieInfoController {
       @RequestBody MovieInfo updateMovieInfo, @PathVariable String id) {
     return movieInfoSerivce
         .updateMovieInfo(updateMovieInfo, id)
+        .doOnNext(movieInfoEventLog::publish)
         .map(ResponseEntity.ok()::body)
         .switchIfEmpty(Mono.just(ResponseEntity.noContent().build()))
-        .log();
+        .transform(signalLogger.mono("movieinfos.update"));
   }
 
   @DeleteMapping("/movieinfos/{id}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-    return movieInfoSerivce.deleteMovieInfo(id).log();
+    return movieInfoSerivce
+        .deleteMovieInfo(id)
+        .then(Mono.<Void>fromRunnable(() -> movieInfoEventLog.publishDeleted(id)))
+        .transform(signalLogger.mono("movieinfos.delete"));
+  }
+
+  // ?fields=name,year reads and writes only those properties, the id always comes along
+  private Set<String> projection(Set<String> fields) {
+    if (fields == null) {
+      return Set.of();
+    }
+    if (!MovieInfo.FIELDS.containsAll(fields)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "fields must be any of " + new TreeSet<>(MovieInfo.FIELDS));
+    }
+    return fields;
   }
 }
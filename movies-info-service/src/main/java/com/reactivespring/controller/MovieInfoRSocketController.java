@@ -0,0 +1,53 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoEventLog;
+import com.reactivespring.service.MovieInfoSerivce;
+import com.reactivespring.util.SignalLogger;
+import io.rsocket.exceptions.CustomRSocketException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+// the lookups movies-service makes, as rsocket request-response and request-stream. an unknown id
+// completes empty instead of failing
+@Controller
+@RequiredArgsConstructor
+public class MovieInfoRSocketController {
+  // rsocket errors carry no http status, so it is added to this custom error code
+  public static final int STATUS_ERROR_CODE = 0x10000;
+
+  private final MovieInfoSerivce movieInfoSerivce;
+  private final MovieInfoEventLog movieInfoEventLog;
+  private final SignalLogger signalLogger;
+
+  @MessageMapping("movieinfos.{id}")
+  public Mono<MovieInfo> getMovieInfoById(@DestinationVariable String id) {
+    return movieInfoSerivce
+        .getMovieInfoById(id, Set.of())
+        .transform(signalLogger.mono("rsocket.movieinfos.byId"));
+  }
+
+  // the same resume position as ?since= on the http stream, sent as the request data
+  @MessageMapping("movieinfos.stream")
+  public Flux<MovieInfoEvent> getMovieInfoStream(@Payload(required = false) Long since) {
+    return movieInfoEventLog
+        .events(since)
+        .transform(signalLogger.flux("rsocket.movieinfos.stream"));
+  }
+
+  @MessageExceptionHandler
+  public Mono<Void> handleResponseStatus(ResponseStatusException ex) {
+    return Mono.error(
+        new CustomRSocketException(STATUS_ERROR_CODE + ex.getRawStatusCode(), ex.getReason()));
+  }
+}
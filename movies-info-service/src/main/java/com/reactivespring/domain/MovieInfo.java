@@ -1,23 +1,31 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.util.DigestUtils;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// properties left out of a ?fields= projection are null and not written at all
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MovieInfo {
+  public static final Set<String> FIELDS =
+      Set.of("movieInfoId", "name", "year", "cast", "release_date");
 
   @Id private String movieInfoId;
 
@@ -30,4 +38,9 @@ public class MovieInfo {
 
   private List<@NotBlank(message = "movieInfo.cast must be pressent") String> cast;
   private LocalDate release_date;
+
+  // content hash rather than a stored version, so documents written before it existed get one too
+  public String etag() {
+    return DigestUtils.md5DigestAsHex(toString().getBytes(StandardCharsets.UTF_8));
+  }
 }
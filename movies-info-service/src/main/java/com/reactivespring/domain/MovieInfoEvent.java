@@ -0,0 +1,26 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a movie info as sent on the stream, stamped with its position so a client can resume after it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+  private long sequenceId;
+
+  @JsonUnwrapped private MovieInfo movieInfo;
+
+  // a delete carries only the id of the movie info, and is left out of updates
+  @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+  private boolean deleted;
+
+  public MovieInfoEvent(long sequenceId, MovieInfo movieInfo) {
+    this(sequenceId, movieInfo, false);
+  }
+}
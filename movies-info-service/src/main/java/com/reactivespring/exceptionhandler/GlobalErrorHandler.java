@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.ConstraintViolationException;
 import java.util.stream.Collectors;
@@ -27,6 +28,12 @@ public class GlobalErrorHandler {
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
   }
 
+  @ExceptionHandler(ResponseStatusException.class)
+  public ResponseEntity<String> handleResponseStatus(ResponseStatusException ex) {
+    log.error("Exception caught in handleResponseStatus : {} ", ex.getMessage());
+    return ResponseEntity.status(ex.getStatus()).body(ex.getReason());
+  }
+
   @ExceptionHandler(RuntimeException.class)
   public ResponseEntity<String> handleRequestBodyError(RuntimeException ex) {
     log.error("Exception caught in handleRequestBodyError : {} ", ex.getMessage(), ex);
@@ -0,0 +1,21 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+// the same lookups as MovieInfoRepository, reading only the given fields of each document.
+// properties that were not selected are left null
+public interface MovieInfoProjectionRepository {
+
+  Flux<MovieInfo> findAll(Set<String> fields);
+
+  Flux<MovieInfo> findByYear(Integer year, Set<String> fields);
+
+  Flux<MovieInfo> findAllBy(Pageable pageable, Set<String> fields);
+
+  Mono<MovieInfo> findById(String id, Set<String> fields);
+}
@@ -0,0 +1,46 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class MovieInfoProjectionRepositoryImpl implements MovieInfoProjectionRepository {
+
+  private final ReactiveMongoTemplate mongoTemplate;
+
+  @Override
+  public Flux<MovieInfo> findAll(Set<String> fields) {
+    return mongoTemplate.find(project(new Query(), fields), MovieInfo.class);
+  }
+
+  @Override
+  public Flux<MovieInfo> findByYear(Integer year, Set<String> fields) {
+    return mongoTemplate.find(
+        project(Query.query(Criteria.where("year").is(year)), fields), MovieInfo.class);
+  }
+
+  @Override
+  public Flux<MovieInfo> findAllBy(Pageable pageable, Set<String> fields) {
+    return mongoTemplate.find(project(new Query().with(pageable), fields), MovieInfo.class);
+  }
+
+  @Override
+  public Mono<MovieInfo> findById(String id, Set<String> fields) {
+    return mongoTemplate.findOne(
+        project(Query.query(Criteria.where("movieInfoId").is(id)), fields), MovieInfo.class);
+  }
+
+  // mongo returns _id whether it is asked for or not
+  private Query project(Query query, Set<String> fields) {
+    query.fields().include(fields.toArray(String[]::new));
+    return query;
+  }
+}
@@ -0,0 +1,72 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+// keeps the most recent events so a reconnecting client can resume from the last one it saw
+@Component
+public class MovieInfoEventLog {
+  private final Sinks.Many<MovieInfoEvent> sink;
+  // seeded from the clock, so ids handed out before a restart are older than anything retained
+  private long lastSequenceId = System.currentTimeMillis() * 1000;
+  private final long firstSequenceId = lastSequenceId + 1;
+
+  public MovieInfoEventLog(@Value("${movieinfo.stream.replaySize:1000}") int capacity) {
+    this.sink = Sinks.many().replay().limit(capacity);
+  }
+
+  // sequence ids are assigned and emitted under the same lock so subscribers see them in order
+  public synchronized MovieInfoEvent publish(MovieInfo movieInfo) {
+    return emit(new MovieInfoEvent(++lastSequenceId, movieInfo));
+  }
+
+  // a tombstone, so clients keeping a copy of the catalog drop the movie info too
+  public synchronized MovieInfoEvent publishDeleted(String movieInfoId) {
+    return emit(
+        new MovieInfoEvent(
+            ++lastSequenceId, new MovieInfo(movieInfoId, null, null, null, null), true));
+  }
+
+  private MovieInfoEvent emit(MovieInfoEvent event) {
+    sink.emitNext(event, Sinks.EmitFailureHandler.FAIL_FAST);
+    return event;
+  }
+
+  // without a position only the latest event is replayed before going live. with one, the gap is
+  // detected on the replayed events themselves: an event evicted between subscribing and the
+  // replay would otherwise be skipped silently
+  public Flux<MovieInfoEvent> events(Long since) {
+    return Flux.defer(
+        () -> {
+          var latest = latestSequenceId();
+          if (since == null) {
+            return sink.asFlux().filter(event -> event.getSequenceId() >= latest);
+          }
+          if (since < firstSequenceId - 1 || since > latest) {
+            return Flux.error(gone(since));
+          }
+          return sink.asFlux()
+              .filter(event -> event.getSequenceId() > since)
+              .switchOnFirst(
+                  (first, events) ->
+                      first.hasValue() && first.get().getSequenceId() != since + 1
+                          ? Flux.error(gone(since))
+                          : events);
+        });
+  }
+
+  private ResponseStatusException gone(long since) {
+    return new ResponseStatusException(
+        HttpStatus.GONE, "Events after " + since + " are no longer available");
+  }
+
+  private synchronized long latestSequenceId() {
+    return lastSequenceId;
+  }
+}
@@ -3,10 +3,14 @@ package com.reactivespring.service;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieInfoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class MovieInfoSerivce {
@@ -17,12 +21,22 @@ public class MovieInfoSerivce {
     return movieInfoRepository.save(movieInfo);
   }
 
-  public Flux<MovieInfo> getAllMovieInfos() {
-    return movieInfoRepository.findAll();
+  // an empty set of fields reads whole documents
+  public Flux<MovieInfo> getAllMovieInfos(Set<String> fields) {
+    return fields.isEmpty() ? movieInfoRepository.findAll() : movieInfoRepository.findAll(fields);
+  }
+
+  public Flux<MovieInfo> getAllMovieInfos(int page, int size, Set<String> fields) {
+    var pageable = PageRequest.of(page, size, Sort.by("movieInfoId"));
+    return fields.isEmpty()
+        ? movieInfoRepository.findAllBy(pageable)
+        : movieInfoRepository.findAllBy(pageable, fields);
   }
 
-  public Mono<MovieInfo> getMovieInfoById(String id) {
-    return movieInfoRepository.findById(id);
+  public Mono<MovieInfo> getMovieInfoById(String id, Set<String> fields) {
+    return fields.isEmpty()
+        ? movieInfoRepository.findById(id)
+        : movieInfoRepository.findById(id, fields);
   }
 
   public Mono<MovieInfo> updateMovieInfo(MovieInfo updateMovieInfo, String id) {
@@ -42,7 +56,9 @@ public class MovieInfoSerivce {
     return movieInfoRepository.deleteById(id);
   }
 
-  public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
-    return movieInfoRepository.findByYear(year);
+  public Flux<MovieInfo> getMovieInfoByYear(Integer year, Set<String> fields) {
+    return fields.isEmpty()
+        ? movieInfoRepository.findByYear(year)
+        : movieInfoRepository.findByYear(year, fields);
   }
 }
@@ -11,6 +11,7 @@ import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -152,4 +153,36 @@ class MovieInfoRepositoryIntegrationTest {
     StepVerifier.create(moviesInfo)
         .expectNextMatches(info -> info.getName().equals("Batman Begins"));
   }
+
+  @Test
+  void findById_fields() {
+    // given
+
+    // when
+    var moviesInfo = movieInfoRepository.findById("abc", Set.of("name", "year"));
+    // then
+    StepVerifier.create(moviesInfo)
+        .assertNext(
+            info -> {
+              assertEquals("abc", info.getMovieInfoId());
+              assertEquals("Dark Knight Rises", info.getName());
+              assertEquals(2012, info.getYear());
+              assertNull(info.getCast());
+              assertNull(info.getRelease_date());
+            })
+        .verifyComplete();
+  }
+
+  @Test
+  void findByYear_fields() {
+    // given
+
+    // when
+    var moviesInfoFlux = movieInfoRepository.findByYear(2005, Set.of("name"));
+    // then
+    StepVerifier.create(moviesInfoFlux)
+        .expectNextMatches(info -> info.getName() != null && info.getYear() == null)
+        .expectNextMatches(info -> info.getName() != null && info.getYear() == null)
+        .verifyComplete();
+  }
 }
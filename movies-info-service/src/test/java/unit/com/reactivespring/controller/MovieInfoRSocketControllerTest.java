@@ -0,0 +1,155 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoEventLog;
+import com.reactivespring.service.MovieInfoSerivce;
+import com.reactivespring.util.SignalLogger;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.CustomRSocketException;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieInfoRSocketControllerTest {
+  MovieInfoSerivce movieInfoSerivce = mock(MovieInfoSerivce.class);
+  MovieInfoEventLog movieInfoEventLog = new MovieInfoEventLog(3);
+  SignalLogger signalLogger = new SignalLogger();
+  CloseableChannel server;
+  RSocketRequester requester;
+
+  MovieInfo movieInfo =
+      new MovieInfo(
+          "abc",
+          "Dark Knight Rises",
+          2012,
+          List.of("Christian Bale", "Tom Hardy"),
+          LocalDate.parse("2012-07-20"));
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(signalLogger, "slowThreshold", Duration.ofMillis(500));
+    var cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    var strategies =
+        RSocketStrategies.builder()
+            .encoders(
+                encoders ->
+                    encoders.add(new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .decoders(
+                decoders ->
+                    decoders.add(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .build();
+    var handler = new RSocketMessageHandler();
+    handler.setRSocketStrategies(strategies);
+    handler.setHandlers(
+        List.of(new MovieInfoRSocketController(movieInfoSerivce, movieInfoEventLog, signalLogger)));
+    handler.afterPropertiesSet();
+    server =
+        RSocketServer.create(handler.responder())
+            .bind(TcpServerTransport.create("localhost", 0))
+            .block();
+    requester =
+        RSocketRequester.builder()
+            .rsocketStrategies(strategies)
+            .tcp("localhost", server.address().getPort());
+  }
+
+  @AfterEach
+  void tearDown() {
+    requester.dispose();
+    server.dispose();
+  }
+
+  @Test
+  void getMovieInfoById() {
+    // given
+    when(movieInfoSerivce.getMovieInfoById("abc", Set.of())).thenReturn(Mono.just(movieInfo));
+    // when
+    var result = requester.route("movieinfos.{id}", "abc").retrieveMono(MovieInfo.class);
+    // then
+    StepVerifier.create(result).expectNext(movieInfo).verifyComplete();
+  }
+
+  @Test
+  void getMovieInfoById_notFound() {
+    // given
+    when(movieInfoSerivce.getMovieInfoById("def", Set.of())).thenReturn(Mono.empty());
+    // when
+    var result = requester.route("movieinfos.{id}", "def").retrieveMono(MovieInfo.class);
+    // then
+    StepVerifier.create(result).verifyComplete();
+  }
+
+  @Test
+  void getMovieInfoStream_resumeAfterSequenceId() {
+    // given
+    var first = movieInfoEventLog.publish(movieInfo);
+    movieInfoEventLog.publish(movieInfo);
+    // when
+    var events =
+        requester
+            .route("movieinfos.stream")
+            .data(first.getSequenceId())
+            .retrieveFlux(MovieInfoEvent.class);
+    // then
+    StepVerifier.create(events)
+        .expectNextMatches(event -> event.getSequenceId() == first.getSequenceId() + 1)
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void getMovieInfoStream_latestWithoutPosition() {
+    // given
+    movieInfoEventLog.publish(movieInfo);
+    var latest = movieInfoEventLog.publish(movieInfo);
+    // when
+    var events = requester.route("movieinfos.stream").retrieveFlux(MovieInfoEvent.class);
+    // then
+    StepVerifier.create(events)
+        .expectNextMatches(event -> event.getSequenceId() == latest.getSequenceId())
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void getMovieInfoStream_gone() {
+    // given
+    var first = movieInfoEventLog.publish(movieInfo);
+    // when
+    var events =
+        requester
+            .route("movieinfos.stream")
+            .data(first.getSequenceId() + 10)
+            .retrieveFlux(MovieInfoEvent.class);
+    // then
+    StepVerifier.create(events)
+        .expectErrorSatisfies(
+            ex ->
+                assertEquals(
+                    MovieInfoRSocketController.STATUS_ERROR_CODE + 410,
+                    ((CustomRSocketException) ex).errorCode()))
+        .verify();
+  }
+}
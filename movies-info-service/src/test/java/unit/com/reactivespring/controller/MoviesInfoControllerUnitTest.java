@@ -1,32 +1,44 @@
 package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoEventLog;
 import com.reactivespring.service.MovieInfoSerivce;
+import com.reactivespring.util.SignalLogger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.*;
 
 @WebFluxTest(MovieInfoController.class)
+@Import({MovieInfoEventLog.class, SignalLogger.class})
 @AutoConfigureWebTestClient
 public class MoviesInfoControllerUnitTest {
   @Autowired private WebTestClient webTestClient;
 
   @MockBean private MovieInfoSerivce movieInfoSerivce;
 
+  @Autowired private MovieInfoEventLog movieInfoEventLog;
+
   static String MOVIES_INFO_URL = "/v1/movieinfos";
   List<MovieInfo> movieinfos =
       List.of(
@@ -54,7 +66,7 @@ public class MoviesInfoControllerUnitTest {
     // given
 
     // when
-    when(movieInfoSerivce.getAllMovieInfos()).thenReturn(Flux.fromIterable(movieinfos));
+    when(movieInfoSerivce.getAllMovieInfos(Set.of())).thenReturn(Flux.fromIterable(movieinfos));
     // then
     webTestClient
         .get()
@@ -71,29 +83,140 @@ public class MoviesInfoControllerUnitTest {
             });
   }
 
+  @Test
+  void getAllMovieInfos_paged() {
+    // given
+
+    // when
+    when(movieInfoSerivce.getAllMovieInfos(1, 2, Set.of()))
+        .thenReturn(Flux.just(movieinfos.get(2)));
+    // then
+    webTestClient
+        .get()
+        .uri(MOVIES_INFO_URL + "?page={page}&size={size}", 1, 2)
+        .exchange()
+        .expectStatus()
+        .is2xxSuccessful()
+        .expectBodyList(MovieInfo.class)
+        .hasSize(1);
+  }
+
+  @Test
+  void getAllMovieInfos_fields() {
+    // given
+    var projected = new MovieInfo("abc", "Dark Knight Rises", 2012, null, null);
+    // when
+    when(movieInfoSerivce.getAllMovieInfos(Set.of("name", "year")))
+        .thenReturn(Flux.just(projected));
+    // then
+    webTestClient
+        .get()
+        .uri(MOVIES_INFO_URL + "?fields=name,year")
+        .exchange()
+        .expectStatus()
+        .is2xxSuccessful()
+        .expectBody()
+        .jsonPath("$[0].name")
+        .isEqualTo("Dark Knight Rises")
+        .jsonPath("$[0].year")
+        .isEqualTo(2012)
+        .jsonPath("$[0].cast")
+        .doesNotExist()
+        .jsonPath("$[0].release_date")
+        .doesNotExist();
+  }
+
+  @Test
+  void getMovieInfoById_unknownField() {
+    // given
+    var presetMovieId = "abc";
+    // when
+    // then
+    webTestClient
+        .get()
+        .uri(MOVIES_INFO_URL + "/{id}?fields=name,rating", presetMovieId)
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+    verify(movieInfoSerivce, never()).getMovieInfoById(isA(String.class), any());
+  }
+
   @Test
   void getMovieInfoById() {
     // given
     var presetMovieId = "abc";
     // when
-    when(movieInfoSerivce.getMovieInfoById(presetMovieId)).thenReturn(Mono.just(movieinfos.get(2)));
+    when(movieInfoSerivce.getMovieInfoById(presetMovieId, Set.of()))
+        .thenReturn(Mono.just(movieinfos.get(2)));
+    // then
+    webTestClient
+        .get()
+        .uri(MOVIES_INFO_URL + "/{id}", presetMovieId)
+        .exchange()
+        .expectStatus()
+        .is2xxSuccessful()
+        .expectBody(MovieInfo.class)
+        .isEqualTo(movieinfos.get(2));
+  }
+
+  @Test
+  void getMovieInfoById_smile() {
+    // given
+    var presetMovieId = "abc";
+    var smile = MediaType.valueOf("application/x-jackson-smile");
+    // when
+    when(movieInfoSerivce.getMovieInfoById(presetMovieId, Set.of()))
+        .thenReturn(Mono.just(movieinfos.get(2)));
     // then
     webTestClient
         .get()
         .uri(MOVIES_INFO_URL + "/{id}", presetMovieId)
+        .accept(smile, MediaType.valueOf("application/json;q=0.9"))
         .exchange()
         .expectStatus()
         .is2xxSuccessful()
+        .expectHeader()
+        .contentType(smile)
         .expectBody(MovieInfo.class)
         .isEqualTo(movieinfos.get(2));
   }
 
+  @Test
+  void getMovieInfoById_notModified() {
+    // given
+    var presetMovieId = "abc";
+    when(movieInfoSerivce.getMovieInfoById(presetMovieId, Set.of()))
+        .thenReturn(Mono.just(movieinfos.get(2)));
+    var etag =
+        webTestClient
+            .get()
+            .uri(MOVIES_INFO_URL + "/{id}", presetMovieId)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(MovieInfo.class)
+            .getResponseHeaders()
+            .getETag();
+    // when
+    // then
+    assertNotNull(etag);
+    webTestClient
+        .get()
+        .uri(MOVIES_INFO_URL + "/{id}", presetMovieId)
+        .ifNoneMatch(etag)
+        .exchange()
+        .expectStatus()
+        .isNotModified()
+        .expectBody()
+        .isEmpty();
+  }
+
   @Test
   void getMovieInfoById2() {
     // given
     var presetMovieId = "22222fdafea";
     // when
-    when(movieInfoSerivce.getMovieInfoById(presetMovieId)).thenReturn(Mono.empty());
+    when(movieInfoSerivce.getMovieInfoById(presetMovieId, Set.of())).thenReturn(Mono.empty());
     // then
     webTestClient
         .get()
@@ -182,6 +305,33 @@ public class MoviesInfoControllerUnitTest {
     verify(movieInfoSerivce, times(1)).updateMovieInfo(any(), any());
   }
 
+  @Test
+  void updateMovieInfo_publishesTheUpdate() {
+    // given
+    var updated =
+        new MovieInfo(
+            "abc",
+            "Dark Knight Rises Remastered",
+            2012,
+            List.of("Christian Bale", "Tom Hardy"),
+            LocalDate.parse("2012-07-20"));
+    when(movieInfoSerivce.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+        .thenReturn(Mono.just(updated));
+    // when
+    webTestClient
+        .put()
+        .uri(MOVIES_INFO_URL + "/{id}", "abc")
+        .bodyValue(updated)
+        .exchange()
+        .expectStatus()
+        .isOk();
+    // then
+    StepVerifier.create(movieInfoEventLog.events(null))
+        .expectNextMatches(event -> event.getMovieInfo().equals(updated))
+        .thenCancel()
+        .verify();
+  }
+
   @Test
   void deleteMovieInfo() {
     // given
@@ -199,6 +349,25 @@ public class MoviesInfoControllerUnitTest {
         .isEmpty();
   }
 
+  @Test
+  void deleteMovieInfo_publishesATombstone() {
+    // given
+    when(movieInfoSerivce.deleteMovieInfo(isA(String.class))).thenReturn(Mono.empty());
+    // when
+    webTestClient
+        .delete()
+        .uri(MOVIES_INFO_URL + "/{id}", "abc")
+        .exchange()
+        .expectStatus()
+        .isNoContent();
+    // then
+    StepVerifier.create(movieInfoEventLog.events(null))
+        .expectNextMatches(
+            event -> event.isDeleted() && event.getMovieInfo().getMovieInfoId().equals("abc"))
+        .thenCancel()
+        .verify();
+  }
+
   @Test
   void addMovieInfo2() {
     // given
@@ -240,4 +409,45 @@ public class MoviesInfoControllerUnitTest {
             });
     verify(movieInfoSerivce, times(0)).updateMovieInfo(any(), any());
   }
+
+  @Test
+  void getMovieInfoStream_resumeFromLastEventId() {
+    // given
+    var seen = movieInfoEventLog.publish(movieinfos.get(0));
+    movieInfoEventLog.publish(movieinfos.get(1));
+    // when
+    var stream =
+        webTestClient
+            .get()
+            .uri(MOVIES_INFO_URL.concat("/stream"))
+            .header("Last-Event-ID", String.valueOf(seen.getSequenceId()))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(MovieInfoEvent.class)
+            .getResponseBody();
+    // then
+    StepVerifier.create(stream)
+        .assertNext(
+            event -> {
+              assertEquals(seen.getSequenceId() + 1, event.getSequenceId());
+              assertEquals("The Dark Knight", event.getMovieInfo().getName());
+            })
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void getMovieInfoStream_sinceNoLongerAvailable() {
+    // given
+
+    // when
+    webTestClient
+        .get()
+        .uri(MOVIES_INFO_URL.concat("/stream?since=0"))
+        .exchange()
+        // then
+        .expectStatus()
+        .isEqualTo(HttpStatus.GONE);
+  }
 }
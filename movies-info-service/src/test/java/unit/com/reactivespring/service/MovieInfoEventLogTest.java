@@ -0,0 +1,81 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoEventLogTest {
+  MovieInfoEventLog movieInfoEventLog = new MovieInfoEventLog(3);
+
+  MovieInfo movieInfo(String name) {
+    return new MovieInfo(null, name, 2005, List.of("Christian Bale"), null);
+  }
+
+  @Test
+  void events_latestThenLive() {
+    // given
+    movieInfoEventLog.publish(movieInfo("Batman Begins"));
+    movieInfoEventLog.publish(movieInfo("The Dark Knight"));
+    // when
+    var events = movieInfoEventLog.events(null).map(event -> event.getMovieInfo().getName());
+    // then
+    StepVerifier.create(events)
+        .expectNext("The Dark Knight")
+        .then(() -> movieInfoEventLog.publish(movieInfo("Dark Knight Rises")))
+        .expectNext("Dark Knight Rises")
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void events_resumeAfterSequenceId() {
+    // given
+    var first = movieInfoEventLog.publish(movieInfo("Batman Begins"));
+    movieInfoEventLog.publish(movieInfo("The Dark Knight"));
+    movieInfoEventLog.publish(movieInfo("Dark Knight Rises"));
+    // when
+    var events = movieInfoEventLog.events(first.getSequenceId());
+    // then
+    StepVerifier.create(events.map(MovieInfoEvent::getSequenceId))
+        .expectNext(first.getSequenceId() + 1, first.getSequenceId() + 2)
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  void events_resumeBeyondReplayBuffer() {
+    // given
+    var first = movieInfoEventLog.publish(movieInfo("Batman Begins"));
+    for (var i = 0; i < 4; i++) {
+      movieInfoEventLog.publish(movieInfo("The Dark Knight " + i));
+    }
+    // when
+    var events = movieInfoEventLog.events(first.getSequenceId());
+    // then
+    StepVerifier.create(events).expectError(ResponseStatusException.class).verify();
+  }
+
+  @Test
+  void events_gapInTheReplayIsGone() {
+    // given
+    var first = movieInfoEventLog.publish(movieInfo("Batman Begins"));
+    for (var i = 0; i < 3; i++) {
+      movieInfoEventLog.publish(movieInfo("The Dark Knight " + i));
+    }
+    // when
+    // the position itself passes the range check, only the replay shows the first event is gone
+    var events = movieInfoEventLog.events(first.getSequenceId() - 1);
+    // then
+    StepVerifier.create(events)
+        .expectErrorSatisfies(
+            ex -> assertEquals(HttpStatus.GONE, ((ResponseStatusException) ex).getStatus()))
+        .verify();
+  }
+}
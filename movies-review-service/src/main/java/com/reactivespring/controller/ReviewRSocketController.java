@@ -0,0 +1,34 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.util.SignalLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+
+// the reviews of a movie and the review stream as rsocket request-streams, so the caller's demand
+// reaches the repository instead of stopping at the tcp window
+@Controller
+@RequiredArgsConstructor
+public class ReviewRSocketController {
+
+  private final ReviewReactiveRepository repository;
+  private final ReviewHandler reviewHandler;
+  private final SignalLogger signalLogger;
+
+  @MessageMapping("reviews.{movieInfoId}")
+  public Flux<Review> getReviews(@DestinationVariable Long movieInfoId) {
+    return repository
+        .findReviewsByMovieInfoId(movieInfoId)
+        .transform(signalLogger.flux("rsocket.reviews.byMovieInfoId"));
+  }
+
+  @MessageMapping("reviews.stream")
+  public Flux<Review> getReviewsStream() {
+    return reviewHandler.newReviews().transform(signalLogger.flux("rsocket.reviews.stream"));
+  }
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+// one row of the rating aggregation, reviews grouped by their rating rounded down
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingBucket {
+
+  @Id private Double rating;
+
+  private Long count;
+
+  private Double ratingSum;
+}
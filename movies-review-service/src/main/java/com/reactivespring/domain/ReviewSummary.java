@@ -0,0 +1,41 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+  private Long movieInfoId;
+  private Long count;
+  // null when none of the reviews has a rating
+  private Double averageRating;
+  // number of reviews per rating rounded down
+  private Map<Integer, Long> ratingHistogram;
+  private List<Review> recentReviews;
+
+  public static ReviewSummary of(
+      Long movieInfoId, List<RatingBucket> buckets, List<Review> recentReviews) {
+    var histogram = new TreeMap<Integer, Long>();
+    var count = 0L;
+    var ratedCount = 0L;
+    var ratingSum = 0.0;
+    for (var bucket : buckets) {
+      count += bucket.getCount();
+      if (bucket.getRating() != null) {
+        histogram.put(bucket.getRating().intValue(), bucket.getCount());
+        ratedCount += bucket.getCount();
+        ratingSum += bucket.getRatingSum();
+      }
+    }
+    var averageRating = ratedCount == 0 ? null : ratingSum / ratedCount;
+    return new ReviewSummary(movieInfoId, count, averageRating, histogram, recentReviews);
+  }
+}
@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
@@ -26,6 +27,10 @@ public class GlobalErrorHandler implements ErrorWebExceptionHandler {
       exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
       return exchange.getResponse().writeWith(Mono.just(dataBuffer));
     }
+    if (ex instanceof ResponseStatusException) {
+      exchange.getResponse().setStatusCode(((ResponseStatusException) ex).getStatus());
+      return exchange.getResponse().writeWith(Mono.just(dataBuffer));
+    }
     exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
     return exchange.getResponse().writeWith(Mono.just(dataBuffer));
   }
@@ -0,0 +1,44 @@
+package com.reactivespring.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// honours the remaining budget forwarded by movies-service, the timeout cancels the mongo query
+@Component
+@Slf4j
+public class DeadlineFilter implements WebFilter {
+  public static final String HEADER = "X-Request-Timeout";
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    var header = exchange.getRequest().getHeaders().getFirst(HEADER);
+    if (header == null) {
+      return chain.filter(exchange);
+    }
+    long remainingMillis;
+    try {
+      remainingMillis = Long.parseLong(header);
+    } catch (NumberFormatException ex) {
+      log.info("ignoring invalid {} header : {}", HEADER, header);
+      return chain.filter(exchange);
+    }
+    if (remainingMillis <= 0) {
+      return Mono.error(deadlineExceeded());
+    }
+    return chain
+        .filter(exchange)
+        .timeout(Duration.ofMillis(remainingMillis), Mono.error(this::deadlineExceeded));
+  }
+
+  private ResponseStatusException deadlineExceeded() {
+    return new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "deadline exceeded");
+  }
+}
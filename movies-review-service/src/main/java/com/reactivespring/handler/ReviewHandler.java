@@ -2,11 +2,14 @@ package com.reactivespring.handler;
 
 import com.mongodb.internal.connection.Server;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.util.SignalLogger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -18,14 +21,21 @@ import reactor.core.publisher.Sinks;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ReviewHandler {
+  private static final int DEFAULT_RECENT_REVIEWS = 5;
+  private static final int MAX_RECENT_REVIEWS = 50;
+
   private final ReviewReactiveRepository repository;
   private final Validator validator;
+  private final SignalLogger signalLogger;
 
   Sinks.Many<Review> reviewsInfoSink = Sinks.many().replay().latest();
 
@@ -52,16 +62,56 @@ public class ReviewHandler {
   }
 
   public Mono<ServerResponse> getReviews(ServerRequest request) {
-    var movieInfoId = request.queryParam("movieInfoId");
+    var movieInfoId = queryParam(request, "movieInfoId", Long::valueOf);
     if (movieInfoId.isPresent()) {
-      var reviews = repository.findReviewsByMovieInfoId(Long.valueOf(movieInfoId.get())).log();
+      var reviews =
+          repository
+              .findReviewsByMovieInfoId(movieInfoId.get())
+              .transform(signalLogger.flux("reviews.byMovieInfoId"));
       return buildReviewsResponse(reviews);
     } else {
-      var reviews = repository.findAll().log();
+      var reviews = repository.findAll().transform(signalLogger.flux("reviews.all"));
       return buildReviewsResponse(reviews);
     }
   }
 
+  public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+    var movieInfoId =
+        queryParam(request, "movieInfoId", Long::valueOf)
+            .orElseThrow(() -> new ReviewDataException("movieInfoId must be present"));
+    var recent =
+        queryParam(request, "recent", Integer::valueOf)
+            .map(size -> Math.min(Math.max(size, 0), MAX_RECENT_REVIEWS))
+            .orElse(DEFAULT_RECENT_REVIEWS);
+    var buckets = repository.aggregateRatingsByMovieInfoId(movieInfoId).collectList();
+    var recentReviews =
+        recent == 0
+            ? Mono.just(List.<Review>of())
+            : repository
+                .findByMovieInfoIdOrderByReviewIdDesc(movieInfoId, PageRequest.of(0, recent))
+                .collectList();
+    return Mono.zip(
+            buckets,
+            recentReviews,
+            (ratings, reviews) -> ReviewSummary.of(movieInfoId, ratings, reviews))
+        .flatMap(ServerResponse.ok()::bodyValue);
+  }
+
+  // a malformed number is the client's mistake, so it is answered with 400 rather than 500
+  private <T> Optional<T> queryParam(
+      ServerRequest request, String name, Function<String, T> parser) {
+    return request
+        .queryParam(name)
+        .map(
+            value -> {
+              try {
+                return parser.apply(value);
+              } catch (NumberFormatException ex) {
+                throw new ReviewDataException(name + " must be a number");
+              }
+            });
+  }
+
   private Mono<ServerResponse> buildReviewsResponse(Flux<Review> reviews) {
     return ServerResponse.ok().body(reviews, Review.class);
   }
@@ -89,7 +139,7 @@ public class ReviewHandler {
         .flatMap(repository::save)
         .flatMap(ServerResponse.ok()::bodyValue)
         .switchIfEmpty(ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue(errorMessage))
-        .log();
+        .transform(signalLogger.mono("reviews.update"));
   }
 
   public Mono<ServerResponse> deleteReview(ServerRequest request) {
@@ -104,7 +154,11 @@ public class ReviewHandler {
   public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
     return ServerResponse.ok()
         .contentType(MediaType.APPLICATION_NDJSON)
-        .body(reviewsInfoSink.asFlux(), Review.class)
-        .log();
+        .body(newReviews().transform(signalLogger.flux("reviews.stream")), Review.class);
+  }
+
+  // reviews as they are added, the latest one first
+  public Flux<Review> newReviews() {
+    return reviewsInfoSink.asFlux();
   }
 }
@@ -1,10 +1,23 @@
 package com.reactivespring.repository;
 
+import com.reactivespring.domain.RatingBucket;
 import com.reactivespring.domain.Review;
 import com.reactivespring.router.ReviewRouter;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
 public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
   Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
+
+  // counted and summed inside mongo, so the reviews themselves never leave the database
+  @Aggregation({
+    "{ $match: { movieInfoId: ?0 } }",
+    "{ $group: { _id: { $floor: '$rating' }, count: { $sum: 1 }, ratingSum: { $sum: '$rating' } } }"
+  })
+  Flux<RatingBucket> aggregateRatingsByMovieInfoId(Long movieInfoId);
+
+  // review ids are ObjectIds, which grow with insertion time
+  Flux<Review> findByMovieInfoIdOrderByReviewIdDesc(Long movieInfoId, Pageable pageable);
 }
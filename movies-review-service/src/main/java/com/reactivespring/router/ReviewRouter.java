@@ -20,6 +20,7 @@ public class ReviewRouter {
             builder -> {
               builder
                   .GET("/stream", request -> reviewHandler.getReviewsStream(request))
+                  .GET("/summary", reviewHandler::getReviewSummary)
                   .POST(reviewHandler::addReview)
                   .GET(reviewHandler::getReviews)
                   .PUT("/{id}", reviewHandler::updateReview)
@@ -0,0 +1,101 @@
+package com.reactivespring.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+// replaces .log() on hot paths: one summary line per subscription instead of one per signal.
+// the level of the "signals.<route>" logger decides what is written and can be changed at
+// runtime through /actuator/loggers
+//   INFO  - subscriptions that failed, or completed slower than signals.log.slowThreshold
+//   DEBUG - also a sampled fraction (signals.log.sampleRate) of all other subscriptions
+//   TRACE - every signal, like .log()
+@Component
+public class SignalLogger {
+  private static final String CATEGORY_PREFIX = "signals.";
+
+  @Value("${signals.log.sampleRate:0.01}")
+  private double sampleRate;
+
+  @Value("${signals.log.slowThreshold:500ms}")
+  private Duration slowThreshold;
+
+  public <T> Function<Flux<T>, Flux<T>> flux(String route) {
+    return source ->
+        Flux.defer(
+            () -> {
+              var logger = LoggerFactory.getLogger(CATEGORY_PREFIX + route);
+              if (logger.isTraceEnabled()) {
+                return source.log(logger.getName(), Level.FINEST);
+              }
+              if (!logger.isInfoEnabled()) {
+                return source;
+              }
+              var subscription = new SubscriptionLog(logger);
+              return source
+                  .doOnNext(value -> subscription.elements++)
+                  .doOnError(subscription::failed)
+                  .doFinally(subscription::finished);
+            });
+  }
+
+  public <T> Function<Mono<T>, Mono<T>> mono(String route) {
+    return source ->
+        Mono.defer(
+            () -> {
+              var logger = LoggerFactory.getLogger(CATEGORY_PREFIX + route);
+              if (logger.isTraceEnabled()) {
+                return source.log(logger.getName(), Level.FINEST);
+              }
+              if (!logger.isInfoEnabled()) {
+                return source;
+              }
+              var subscription = new SubscriptionLog(logger);
+              return source
+                  .doOnNext(value -> subscription.elements++)
+                  .doOnError(subscription::failed)
+                  .doFinally(subscription::finished);
+            });
+  }
+
+  // signals of one subscription are serialized, so plain fields are enough
+  private class SubscriptionLog {
+    private final Logger logger;
+    private final long startedAt = System.nanoTime();
+    private long elements;
+    private Throwable failure;
+
+    SubscriptionLog(Logger logger) {
+      this.logger = logger;
+    }
+
+    void failed(Throwable failure) {
+      this.failure = failure;
+    }
+
+    void finished(SignalType signal) {
+      var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+      // a cancelled stream is the caller hanging up, its lifetime says nothing about latency
+      var slow = signal != SignalType.CANCEL && elapsed.compareTo(slowThreshold) > 0;
+      if (failure != null || slow) {
+        logger.info(
+            "{} after {} ms, {} elements{}",
+            signal,
+            elapsed.toMillis(),
+            elements,
+            failure == null ? "" : " : " + failure);
+      } else if (logger.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+        logger.debug("{} after {} ms, {} elements", signal, elapsed.toMillis(), elements);
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -154,4 +155,29 @@ public class ReviewsIntgTest {
     // then
     webTestClient.get().uri(uri).exchange().expectBodyList(Review.class).hasSize(1);
   }
+
+  @Test
+  void getReviewSummary() {
+    // given
+
+    // when
+
+    // then
+    webTestClient
+        .get()
+        .uri(REVIEWS_URL.concat("/summary?movieInfoId=1&recent=1"))
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(ReviewSummary.class)
+        .consumeWith(
+            res -> {
+              var summary = res.getResponseBody();
+              Assertions.assertEquals(2L, summary.getCount());
+              Assertions.assertEquals(9.0, summary.getAverageRating());
+              Assertions.assertEquals(2L, summary.getRatingHistogram().get(9));
+              Assertions.assertEquals(1, summary.getRecentReviews().size());
+              Assertions.assertEquals("Awesome Movie1", summary.getRecentReviews().get(0).getComment());
+            });
+  }
 }
@@ -0,0 +1,95 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.util.SignalLogger;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReviewRSocketControllerTest {
+  ReviewReactiveRepository repository = mock(ReviewReactiveRepository.class);
+  ReviewHandler reviewHandler = mock(ReviewHandler.class);
+  SignalLogger signalLogger = new SignalLogger();
+  CloseableChannel server;
+  RSocketRequester requester;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(signalLogger, "slowThreshold", Duration.ofMillis(500));
+    var cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    var strategies =
+        RSocketStrategies.builder()
+            .encoders(
+                encoders ->
+                    encoders.add(new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .decoders(
+                decoders ->
+                    decoders.add(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .build();
+    var handler = new RSocketMessageHandler();
+    handler.setRSocketStrategies(strategies);
+    handler.setHandlers(
+        List.of(new ReviewRSocketController(repository, reviewHandler, signalLogger)));
+    handler.afterPropertiesSet();
+    server =
+        RSocketServer.create(handler.responder())
+            .bind(TcpServerTransport.create("localhost", 0))
+            .block();
+    requester =
+        RSocketRequester.builder()
+            .rsocketStrategies(strategies)
+            .tcp("localhost", server.address().getPort());
+  }
+
+  @AfterEach
+  void tearDown() {
+    requester.dispose();
+    server.dispose();
+  }
+
+  @Test
+  void getReviews() {
+    // given
+    var reviews =
+        List.of(
+            new Review("abc", 1L, "Awesome Movie", 9.0),
+            new Review("def", 1L, "Excellent Movie", 8.0));
+    when(repository.findReviewsByMovieInfoId(1L)).thenReturn(Flux.fromIterable(reviews));
+    // when
+    var result = requester.route("reviews.{movieInfoId}", 1L).retrieveFlux(Review.class);
+    // then
+    StepVerifier.create(result).expectNextSequence(reviews).verifyComplete();
+  }
+
+  @Test
+  void getReviewsStream() {
+    // given
+    var review = new Review("abc", 1L, "Awesome Movie", 9.0);
+    when(reviewHandler.newReviews()).thenReturn(Flux.just(review).concatWith(Flux.never()));
+    // when
+    var result = requester.route("reviews.stream").retrieveFlux(Review.class);
+    // then
+    StepVerifier.create(result).expectNext(review).thenCancel().verify();
+  }
+}
@@ -1,10 +1,13 @@
 package com.reactivespring.routes;
 
+import com.reactivespring.domain.RatingBucket;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.util.SignalLogger;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -19,6 +23,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -29,7 +34,8 @@ import static org.mockito.Mockito.*;
     classes = {
       ReviewRouter.class,
       ReviewHandler.class,
-      GlobalErrorHandler.class
+      GlobalErrorHandler.class,
+      SignalLogger.class
     }) // can inject beans
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
@@ -235,4 +241,80 @@ public class ReviewsUnitTest {
     verify(repository, times(1)).findById(any(String.class));
     verify(repository, times(0)).save(any());
   }
+
+  @Test
+  void getReviewSummary() {
+    // given
+    var recent = new Review("def", 1L, "Excellent Movie", 8.0);
+    // when
+    when(repository.aggregateRatingsByMovieInfoId(1L))
+        .thenReturn(
+            Flux.just(
+                new RatingBucket(9.0, 2L, 18.5), new RatingBucket(8.0, 1L, 8.0), new RatingBucket(null, 1L, 0.0)));
+    when(repository.findByMovieInfoIdOrderByReviewIdDesc(1L, PageRequest.of(0, 1)))
+        .thenReturn(Flux.just(recent));
+    // then
+    testClient
+        .get()
+        .uri(REVIEWS_URL.concat("/summary?movieInfoId=1&recent=1"))
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(ReviewSummary.class)
+        .consumeWith(
+            res -> {
+              var summary = res.getResponseBody();
+              assertEquals(4L, summary.getCount());
+              assertEquals(26.5 / 3, summary.getAverageRating());
+              assertEquals(Map.of(8, 1L, 9, 2L), summary.getRatingHistogram());
+              assertEquals(List.of(recent), summary.getRecentReviews());
+            });
+  }
+
+  @Test
+  void getReviewSummary_withoutMovieInfoId() {
+    // given
+
+    // when
+
+    // then
+    testClient
+        .get()
+        .uri(REVIEWS_URL.concat("/summary"))
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+  }
+
+  @Test
+  void getReviewSummary_nonNumericRecent() {
+    // given
+
+    // when
+
+    // then
+    testClient
+        .get()
+        .uri(REVIEWS_URL.concat("/summary?movieInfoId=1&recent=abc"))
+        .exchange()
+        .expectStatus()
+        .isBadRequest()
+        .expectBody(String.class)
+        .isEqualTo("recent must be a number");
+  }
+
+  @Test
+  void getReviews_nonNumericMovieInfoId() {
+    // given
+
+    // when
+
+    // then
+    testClient
+        .get()
+        .uri(REVIEWS_URL.concat("?movieInfoId=abc"))
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+  }
 }
@@ -0,0 +1,128 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MovieInfoCache {
+  private final MeterRegistry meterRegistry;
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+  private Cache<String, CachedMovieInfo> cache;
+
+  @Value("${movies.cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${movies.cache.ttl:5m}")
+  private Duration ttl;
+
+  @Value("${movies.cache.staleWhileRevalidate:1h}")
+  private Duration staleWhileRevalidate;
+
+  @Value("${movies.cache.maximumSize:10000}")
+  private long maximumSize;
+
+  @Value("${movies.cache.maximumBytes:0}")
+  private DataSize maximumBytes;
+
+  @PostConstruct
+  void buildCache() {
+    var builder =
+        Caffeine.newBuilder().expireAfterWrite(ttl.plus(staleWhileRevalidate)).recordStats();
+    if (maximumBytes.toBytes() > 0) {
+      builder
+          .maximumWeight(maximumBytes.toBytes())
+          .weigher((String movieId, CachedMovieInfo entry) -> entry.getEstimatedBytes());
+    } else {
+      builder.maximumSize(maximumSize);
+    }
+    cache = builder.build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfo");
+  }
+
+  // entries older than the ttl are still served, while a single background refresh replaces them
+  public Mono<MovieInfo> get(String movieId, Function<String, Mono<MovieInfo>> loader) {
+    if (!enabled) {
+      return loader.apply(movieId);
+    }
+    return Mono.defer(
+        () -> {
+          var entry = cache.getIfPresent(movieId);
+          if (entry == null) {
+            return load(movieId, loader);
+          }
+          if (entry.isStale(ttl)) {
+            meterRegistry.counter("movies.cache.stale", "cache", "movieInfo").increment();
+            refresh(movieId, loader);
+          }
+          return Mono.just(entry.getMovieInfo());
+        });
+  }
+
+  private Mono<MovieInfo> load(String movieId, Function<String, Mono<MovieInfo>> loader) {
+    return loader
+        .apply(movieId)
+        .doOnNext(movieInfo -> cache.put(movieId, CachedMovieInfo.of(movieInfo)));
+  }
+
+  private void refresh(String movieId, Function<String, Mono<MovieInfo>> loader) {
+    if (!refreshing.add(movieId)) {
+      return;
+    }
+    load(movieId, loader)
+        .doFinally(signal -> refreshing.remove(movieId))
+        .subscribe(
+            movieInfo -> log.debug("refreshed cached movieinfo {}", movieId),
+            ex -> log.info("refresh of cached movieinfo {} failed : {}", movieId, ex.getMessage()));
+  }
+
+  @Getter
+  @AllArgsConstructor
+  static class CachedMovieInfo {
+    private final MovieInfo movieInfo;
+    private final long loadedAt;
+    private final int estimatedBytes;
+
+    static CachedMovieInfo of(MovieInfo movieInfo) {
+      return new CachedMovieInfo(movieInfo, System.nanoTime(), estimateBytes(movieInfo));
+    }
+
+    boolean isStale(Duration ttl) {
+      return System.nanoTime() - loadedAt > ttl.toNanos();
+    }
+
+    // rough retained size: object headers plus two bytes per character
+    private static int estimateBytes(MovieInfo movieInfo) {
+      var bytes = 128;
+      bytes += length(movieInfo.getMovieInfoId()) * 2 + length(movieInfo.getName()) * 2;
+      if (movieInfo.getCast() != null) {
+        for (var member : movieInfo.getCast()) {
+          bytes += 40 + length(member) * 2;
+        }
+      }
+      return bytes;
+    }
+
+    private static int length(String value) {
+      return value == null ? 0 : value.length();
+    }
+  }
+}
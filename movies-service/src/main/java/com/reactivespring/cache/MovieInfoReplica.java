@@ -0,0 +1,126 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MovieInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MovieInfoReplica {
+  private final MovieInfoRestClient moviesClient;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, MovieInfo> movieInfos = new ConcurrentHashMap<>();
+  private final Set<String> streamedDuringSync = ConcurrentHashMap.newKeySet();
+  private Disposable subscription;
+
+  @Value("${movies.replica.enabled:false}")
+  private boolean enabled;
+
+  @Value("${movies.replica.pageSize:500}")
+  private int pageSize;
+
+  @Value("${movies.replica.reconnectBackoff:1s}")
+  private Duration reconnectBackoff;
+
+  @Value("${movies.replica.maxReconnectBackoff:30s}")
+  private Duration maxReconnectBackoff;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    Gauge.builder("movies.replica.size", movieInfos, Map::size).register(meterRegistry);
+    // every (re)connect listens to the stream first and then reloads the whole catalog, so no
+    // update is lost while disconnected and a page read never overwrites a newer streamed event.
+    // a streamed delete removes the entry, and a page read never brings it back either
+    subscription =
+        Flux.defer(this::sync)
+            .repeatWhen(completed -> completed.delayElements(reconnectBackoff))
+            .retryWhen(
+                Retry.backoff(Long.MAX_VALUE, reconnectBackoff)
+                    .maxBackoff(maxReconnectBackoff)
+                    .doBeforeRetry(
+                        signal ->
+                            log.info(
+                                "movieinfo replica disconnected, reconnecting : {}",
+                                signal.failure().getMessage())))
+            .subscribe();
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (subscription != null) {
+      subscription.dispose();
+    }
+  }
+
+  public Mono<MovieInfo> lookup(String movieId) {
+    if (!enabled) {
+      return Mono.empty();
+    }
+    return Mono.fromSupplier(
+        () -> {
+          var movieInfo = movieInfos.get(movieId);
+          meterRegistry
+              .counter("movies.replica.lookups", "result", movieInfo == null ? "miss" : "hit")
+              .increment();
+          return movieInfo;
+        });
+  }
+
+  private Flux<MovieInfo> sync() {
+    streamedDuringSync.clear();
+    var stream =
+        moviesClient
+            .retrieveMovieInfoStream()
+            .doOnNext(
+                movieInfo -> {
+                  streamedDuringSync.add(movieInfo.getMovieInfoId());
+                  if (Boolean.TRUE.equals(movieInfo.getDeleted())) {
+                    movieInfos.remove(movieInfo.getMovieInfoId());
+                  } else {
+                    movieInfos.put(movieInfo.getMovieInfoId(), movieInfo);
+                  }
+                });
+    return Flux.merge(stream, bootstrap(0));
+  }
+
+  private Flux<MovieInfo> bootstrap(int page) {
+    return moviesClient
+        .retrieveMovieInfos(page, pageSize)
+        .doOnNext(
+            movieInfo -> {
+              if (!streamedDuringSync.contains(movieInfo.getMovieInfoId())) {
+                movieInfos.put(movieInfo.getMovieInfoId(), movieInfo);
+              }
+            })
+        .count()
+        .flatMapMany(
+            loaded -> {
+              if (loaded < pageSize) {
+                log.info("movieinfo replica loaded {} entries", movieInfos.size());
+                return Flux.empty();
+              }
+              return bootstrap(page + 1);
+            });
+  }
+}
@@ -1,13 +1,35 @@
 package com.reactivespring.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.cache.MovieInfoCache;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.LoadBalancer;
+import com.reactivespring.util.RequestCoalescer;
+import com.reactivespring.util.RequestHedger;
+import com.reactivespring.util.RetryPolicy;
+import com.reactivespring.util.SignalLogger;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.RSocketErrorException;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.exceptions.CustomRSocketException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.Exceptions;
@@ -15,23 +37,114 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import javax.annotation.PostConstruct;
+import java.net.URI;
 import java.time.Duration;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class MovieInfoRestClient {
+  private static final String CLIENT_NAME = "moviesInfo";
+  // movies-info-service adds the http status to this rsocket error code
+  private static final int STATUS_ERROR_CODE = 0x10000;
+
+  @Qualifier("movieInfoWebClient")
   private final WebClient webClient;
 
+  @Qualifier("movieInfoStreamWebClient")
+  private final WebClient streamWebClient;
+
+  @Qualifier("movieInfoRequester")
+  private final RSocketRequester requester;
+
+  private final RequestCoalescer requestCoalescer;
+  private final MovieInfoCache movieInfoCache;
+  private final CircuitBreakerRegistry circuitBreakerRegistry;
+  private final BulkheadRegistry bulkheadRegistry;
+  private final RetryPolicy retryPolicy;
+  private final RequestHedger requestHedger;
+  private final MeterRegistry meterRegistry;
+  private final SignalLogger signalLogger;
+
   @Value("${restClient.moviesInfoUrl}")
   private String movieInfoUrl;
 
+  @Value("${restClient.transport:http}")
+  private Transport transport;
+
+  @Value("${restClient.conditional.enabled:true}")
+  private boolean conditional;
+
+  @Value("${restClient.conditional.maximumSize:10000}")
+  private long validatorsSize;
+
+  // last etag seen per movie and projection, so a refresh of an unchanged movie info comes back
+  // as a bodyless 304
+  private Cache<String, Validated> validators;
+
+  @PostConstruct
+  void buildValidators() {
+    validators = Caffeine.newBuilder().maximumSize(validatorsSize).build();
+  }
+
   public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+    return movieInfoCache.get(
+        movieId,
+        id ->
+            requestCoalescer.coalesce(
+                CLIENT_NAME,
+                movieInfoUrl.concat("/").concat(id),
+                () -> requestHedger.hedge(CLIENT_NAME, () -> fetchMovieInfo(id, ""))));
+  }
+
+  // projected movie infos skip the cache, which only holds whole documents
+  public Mono<MovieInfo> retrieveMovieInfo(String movieId, Set<String> fields) {
+    if (fields.isEmpty()) {
+      return retrieveMovieInfo(movieId);
+    }
+    var fieldList = String.join(",", new TreeSet<>(fields));
+    return requestCoalescer.coalesce(
+        CLIENT_NAME,
+        movieInfoUrl.concat("/").concat(movieId).concat("?fields=").concat(fieldList),
+        () -> requestHedger.hedge(CLIENT_NAME, () -> fetchMovieInfo(movieId, fieldList)));
+  }
+
+  private Mono<MovieInfo> fetchMovieInfo(String movieId, String fieldList) {
+    var url =
+        fieldList.isEmpty()
+            ? movieInfoUrl.concat("/{id}")
+            : movieInfoUrl.concat("/{id}?fields={fields}");
+    var validatorKey = fieldList.isEmpty() ? movieId : movieId.concat("?fields=").concat(fieldList);
+    var response =
+        transport == Transport.RSOCKET && fieldList.isEmpty()
+            ? requestMovieInfo(movieId)
+            : fetchMovieInfo(url, movieId, fieldList, validatorKey);
+    // retries resubscribe the same request, so they keep its attempt count and validator
+    return response
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker()))
+        //        .retry(3)
+        .retryWhen(retryPolicy.retrySpec(CLIENT_NAME))
+        .transformDeferred(BulkheadOperator.of(bulkhead()))
+        .doOnError(this::countError)
+        .transform(signalLogger.mono("moviesInfo.byId"));
+  }
 
-    var url = movieInfoUrl.concat("/{id}");
+  private Mono<MovieInfo> fetchMovieInfo(
+      String url, String movieId, String fieldList, String validatorKey) {
+    var validated = validated(validatorKey);
     return webClient
         .get()
-        .uri(url, movieId)
+        .uri(url, movieId, fieldList)
+        .headers(
+            headers -> {
+              if (validated != null) {
+                headers.setIfNoneMatch(validated.getEtag());
+              }
+            })
         .retrieve()
         .onStatus(
             HttpStatus::is4xxClientError,
@@ -52,7 +165,7 @@ public class MovieInfoRestClient {
                                   msg, clientResponse.statusCode().value())));
             })
         .onStatus(
-            HttpStatus::is4xxClientError,
+            HttpStatus::is5xxServerError,
             clientResponse -> {
               log.info("status code is : {}", clientResponse.statusCode().value());
 
@@ -64,17 +177,108 @@ public class MovieInfoRestClient {
                               new MoviesInfoServerException(
                                   "ServerException in Movies info : " + msg)));
             })
-        .bodyToMono(MovieInfo.class)
-        //        .retry(3)
-        .retryWhen(RetryUtil.retrySpec())
-        .log();
+        .toEntity(MovieInfo.class)
+        .flatMap(entity -> revalidated(validatorKey, validated, entity));
   }
 
-  public Flux<MovieInfo> retrieveMovieInfoStream() {
-    var url = movieInfoUrl.concat("/stream");
+  private Mono<MovieInfo> requestMovieInfo(String movieId) {
+    return requester
+        .route("movieinfos.{id}", movieId)
+        .retrieveMono(MovieInfo.class)
+        .switchIfEmpty(
+            Mono.error(
+                () ->
+                    new MoviesInfoClientException(
+                        "There is no movieinfo with id".concat(movieId),
+                        HttpStatus.NOT_FOUND.value())))
+        .onErrorMap(RSocketErrorException.class, this::rsocketError);
+  }
+
+  // errors raised by movies-info-service, with the http status they would have had if it was sent
+  private Throwable rsocketError(RSocketErrorException ex) {
+    var status = HttpStatus.resolve(ex.errorCode() - STATUS_ERROR_CODE);
+    if (ex instanceof CustomRSocketException && status != null && status.is4xxClientError()) {
+      log.info("status code is : {}", status.value());
+      return new MoviesInfoClientException(ex.getMessage(), status.value());
+    }
+    if (ex instanceof CustomRSocketException || ex instanceof ApplicationErrorException) {
+      return new MoviesInfoServerException("ServerException in Movies info : " + ex.getMessage());
+    }
+    return ex;
+  }
+
+  private Validated validated(String validatorKey) {
+    return conditional ? validators.getIfPresent(validatorKey) : null;
+  }
+
+  private Mono<MovieInfo> revalidated(
+      String validatorKey, Validated validated, ResponseEntity<MovieInfo> entity) {
+    if (entity.getStatusCode() == HttpStatus.NOT_MODIFIED && validated != null) {
+      meterRegistry.counter("movies.client.conditional", "result", "not_modified").increment();
+      return Mono.just(validated.getMovieInfo());
+    }
+    var etag = entity.getHeaders().getETag();
+    if (conditional && etag != null && entity.getBody() != null) {
+      meterRegistry.counter("movies.client.conditional", "result", "modified").increment();
+      validators.put(validatorKey, new Validated(etag, entity.getBody()));
+    }
+    return Mono.justOrEmpty(entity.getBody());
+  }
+
+  public Flux<MovieInfo> retrieveMovieInfos(int page, int size) {
     return webClient
         .get()
-        .uri(url)
+        .uri(movieInfoUrl.concat("?page={page}&size={size}"), page, size)
+        .retrieve()
+        .onStatus(
+            HttpStatus::is5xxServerError,
+            clientResponse ->
+                clientResponse
+                    .bodyToMono(String.class)
+                    .flatMap(
+                        msg ->
+                            Mono.error(
+                                new MoviesInfoServerException(
+                                    "ServerException in Movies info : " + msg))))
+        .bodyToFlux(MovieInfo.class)
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker()))
+        .retryWhen(retryPolicy.retrySpec(CLIENT_NAME))
+        .doOnError(this::countError);
+  }
+
+  public Flux<MovieInfo> retrieveMovieInfoStream() {
+    return retrieveMovieInfoStream(null, new AtomicReference<>());
+  }
+
+  // with a sequence id the stream resumes right after that event instead of at the latest one.
+  // sequence ids are only meaningful to the instance that handed them out, so the stream is pinned
+  // to the instance in the reference, see LoadBalancer.PIN_ATTRIBUTE
+  public Flux<MovieInfo> retrieveMovieInfoStream(Long since, AtomicReference<URI> instance) {
+    var movieInfos =
+        transport == Transport.RSOCKET
+            ? requestMovieInfoStream(since)
+            : streamMovieInfos(since, instance);
+    return movieInfos
+        //        .retry(3)
+        .retryWhen(retryPolicy.retrySpec(CLIENT_NAME))
+        .doOnError(this::countError)
+        .transform(signalLogger.flux("moviesInfo.stream"));
+  }
+
+  private Flux<MovieInfo> requestMovieInfoStream(Long since) {
+    var request = requester.route("movieinfos.stream");
+    return (since == null ? request : request.data(since))
+        .retrieveFlux(MovieInfo.class)
+        .onErrorMap(RSocketErrorException.class, this::rsocketError);
+  }
+
+  private Flux<MovieInfo> streamMovieInfos(Long since, AtomicReference<URI> instance) {
+    var request =
+        since == null
+            ? streamWebClient.get().uri(movieInfoUrl.concat("/stream"))
+            : streamWebClient.get().uri(movieInfoUrl.concat("/stream?since={since}"), since);
+    return request
+        .attribute(LoadBalancer.PIN_ATTRIBUTE, instance)
         .retrieve()
         .onStatus(
             HttpStatus::is4xxClientError,
@@ -89,7 +293,7 @@ public class MovieInfoRestClient {
                                   msg, clientResponse.statusCode().value())));
             })
         .onStatus(
-            HttpStatus::is4xxClientError,
+            HttpStatus::is5xxServerError,
             clientResponse -> {
               log.info("status code is : {}", clientResponse.statusCode().value());
 
@@ -101,9 +305,29 @@ public class MovieInfoRestClient {
                               new MoviesInfoServerException(
                                   "ServerException in Movies info : " + msg)));
             })
-        .bodyToFlux(MovieInfo.class)
-        //        .retry(3)
-        .retryWhen(RetryUtil.retrySpec())
-        .log();
+        .bodyToFlux(MovieInfo.class);
+  }
+
+  // one count per failed call, after retries, tagged with the exception that reached the caller
+  private void countError(Throwable ex) {
+    meterRegistry
+        .counter(
+            "movies.client.errors", "client", CLIENT_NAME, "exception", ex.getClass().getSimpleName())
+        .increment();
+  }
+
+  private CircuitBreaker circuitBreaker() {
+    return circuitBreakerRegistry.circuitBreaker(CLIENT_NAME);
+  }
+
+  private Bulkhead bulkhead() {
+    return bulkheadRegistry.bulkhead(CLIENT_NAME);
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static class Validated {
+    private final String etag;
+    private final MovieInfo movieInfo;
   }
 }
@@ -0,0 +1,104 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// one upstream movieinfo stream per instance, shared by every local subscriber
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MovieInfoStreamHub {
+  private final MovieInfoRestClient moviesClient;
+  private final MeterRegistry meterRegistry;
+  private final AtomicInteger subscribers = new AtomicInteger();
+  private final AtomicReference<Long> lastSequenceId = new AtomicReference<>();
+  // the backend instance lastSequenceId came from, the two are only ever reset together
+  private final AtomicReference<URI> instance = new AtomicReference<>();
+  private Flux<MovieInfo> upstream;
+
+  @Value("${movies.stream.hub.subscriberBufferSize:256}")
+  private int subscriberBufferSize;
+
+  @Value("${movies.stream.hub.reconnectBackoff:1s}")
+  private Duration reconnectBackoff;
+
+  @Value("${movies.stream.hub.maxReconnectBackoff:30s}")
+  private Duration maxReconnectBackoff;
+
+  @Value("${movies.stream.hub.gracePeriod:5s}")
+  private Duration gracePeriod;
+
+  // connects with the first subscriber and disconnects once the last one has been gone for the
+  // grace period, a late subscriber first gets the most recent event like a direct connection.
+  // a reconnect resumes after the last event seen on the same instance, unless it no longer has it
+  @PostConstruct
+  void connect() {
+    upstream =
+        Flux.defer(() -> moviesClient.retrieveMovieInfoStream(lastSequenceId.get(), instance))
+            .doOnNext(this::recordPosition)
+            .doOnError(this::resetPositionIfGone)
+            .repeatWhen(completed -> completed.delayElements(reconnectBackoff))
+            .retryWhen(
+                Retry.backoff(Long.MAX_VALUE, reconnectBackoff)
+                    .maxBackoff(maxReconnectBackoff)
+                    .doBeforeRetry(
+                        signal -> {
+                          meterRegistry.counter("movies.stream.hub.reconnects").increment();
+                          log.info(
+                              "movieinfo stream disconnected, reconnecting : {}",
+                              signal.failure().getMessage());
+                        }))
+            .doOnCancel(this::resetPosition)
+            .replay(1)
+            .refCount(1, gracePeriod);
+    Gauge.builder("movies.stream.hub.subscribers", subscribers, AtomicInteger::get)
+        .register(meterRegistry);
+  }
+
+  private void recordPosition(MovieInfo movieInfo) {
+    if (movieInfo.getSequenceId() != null) {
+      lastSequenceId.set(movieInfo.getSequenceId());
+    }
+  }
+
+  private void resetPositionIfGone(Throwable ex) {
+    if (ex instanceof MoviesInfoClientException
+        && ((MoviesInfoClientException) ex).getStatusCode() == HttpStatus.GONE.value()) {
+      log.info("movieinfo stream can not resume after {}, resubscribing", lastSequenceId.get());
+      resetPosition();
+    }
+  }
+
+  private void resetPosition() {
+    lastSequenceId.set(null);
+    instance.set(null);
+  }
+
+  // each subscriber gets its own bounded queue, one that falls behind is dropped instead of
+  // holding back the others
+  public Flux<MovieInfo> subscribe() {
+    return upstream
+        .onBackpressureBuffer(
+            subscriberBufferSize,
+            movieInfo -> meterRegistry.counter("movies.stream.hub.evictions").increment(),
+            BufferOverflowStrategy.ERROR)
+        .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+        .doFinally(signal -> subscribers.decrementAndGet());
+  }
+}
@@ -1,15 +1,28 @@
 package com.reactivespring.client;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.RequestCoalescer;
+import com.reactivespring.util.RetryPolicy;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.RSocketErrorException;
+import io.rsocket.exceptions.ApplicationErrorException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -20,20 +33,81 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 @Slf4j
 public class ReviewsRestClient {
+  private static final String CLIENT_NAME = "reviews";
+
+  @Qualifier("reviewsWebClient")
   private final WebClient webClient;
 
+  @Qualifier("reviewsStreamWebClient")
+  private final WebClient streamWebClient;
+
+  @Qualifier("reviewsRequester")
+  private final RSocketRequester requester;
+
+  private final RequestCoalescer requestCoalescer;
+  private final CircuitBreakerRegistry circuitBreakerRegistry;
+  private final BulkheadRegistry bulkheadRegistry;
+  private final RetryPolicy retryPolicy;
+  private final MeterRegistry meterRegistry;
+
   @Value("${restClient.reviewsInfoUrl}")
   private String reviewsUrl;
 
+  @Value("${restClient.transport:http}")
+  private Transport transport;
+
+  // uri templates rather than expanded uris, so the metrics are tagged per route and not per movie
   public Flux<Review> getReviews(String movieId) {
-    var uri =
-        UriComponentsBuilder.fromHttpUrl(reviewsUrl)
-            .queryParam("movieInfoId", movieId)
-            .buildAndExpand()
-            .toUri();
+    var uriTemplate = reviewsUrl.concat("?movieInfoId={movieInfoId}");
+    return requestCoalescer
+        .coalesce(
+            CLIENT_NAME,
+            expand(uriTemplate, movieId),
+            () -> fetchReviews(uriTemplate, movieId).collectList())
+        .flatMapIterable(reviews -> reviews);
+  }
+
+  // counts and the most recent reviews only, so the payload does not grow with the review count
+  public Mono<ReviewSummary> getReviewSummary(String movieId, int recent) {
+    var uriTemplate = reviewsUrl.concat("/summary?movieInfoId={movieInfoId}&recent={recent}");
+    return requestCoalescer.coalesce(
+        CLIENT_NAME,
+        expand(uriTemplate, movieId, recent),
+        () -> fetchReviewSummary(uriTemplate, movieId, recent));
+  }
+
+  private Flux<Review> fetchReviews(String uriTemplate, String movieId) {
+    var reviews =
+        transport == Transport.RSOCKET
+            ? requester
+                .route("reviews.{movieInfoId}", movieId)
+                .retrieveFlux(Review.class)
+                .onErrorMap(RSocketErrorException.class, this::rsocketError)
+            : retrieve(uriTemplate, movieId).bodyToFlux(Review.class);
+    return reviews
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker()))
+        .retryWhen(retryPolicy.retrySpec(CLIENT_NAME))
+        .transformDeferred(BulkheadOperator.of(bulkhead()))
+        .doOnError(this::countError);
+  }
+
+  private Mono<ReviewSummary> fetchReviewSummary(String uriTemplate, Object... uriVariables) {
+    return retrieve(uriTemplate, uriVariables)
+        .bodyToMono(ReviewSummary.class)
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker()))
+        .retryWhen(retryPolicy.retrySpec(CLIENT_NAME))
+        .transformDeferred(BulkheadOperator.of(bulkhead()))
+        .doOnError(this::countError);
+  }
+
+  private String expand(String uriTemplate, Object... uriVariables) {
+    return UriComponentsBuilder.fromHttpUrl(uriTemplate).buildAndExpand(uriVariables).toUriString();
+  }
+
+  private WebClient.ResponseSpec retrieve(String uriTemplate, Object... uriVariables) {
     return webClient
         .get()
-        .uri(uri)
+        .uri(uriTemplate, uriVariables)
         .retrieve()
         .onStatus(
             HttpStatus::is4xxClientError,
@@ -46,6 +120,45 @@ public class ReviewsRestClient {
                   .bodyToMono(String.class)
                   .flatMap(msg -> Mono.error(new ReviewsClientException(msg)));
             })
+        .onStatus(
+            HttpStatus::is5xxServerError,
+            clientResponse -> {
+              log.info("status code 5xx is : {}", clientResponse.statusCode().value());
+              return clientResponse
+                  .bodyToMono(String.class)
+                  .flatMap(
+                      msg ->
+                          Mono.error(
+                              new ReviewsServerException(
+                                  msg.concat(" Review Service Not Available"))));
+            });
+  }
+
+  public Flux<Review> retrieveReviewStream() {
+    var reviews =
+        transport == Transport.RSOCKET
+            ? requester
+                .route("reviews.stream")
+                .retrieveFlux(Review.class)
+                .onErrorMap(RSocketErrorException.class, this::rsocketError)
+            : streamReviews();
+    return reviews.retryWhen(retryPolicy.retrySpec(CLIENT_NAME)).doOnError(this::countError);
+  }
+
+  private Flux<Review> streamReviews() {
+    var url = reviewsUrl.concat("/stream");
+    return streamWebClient
+        .get()
+        .uri(url)
+        .retrieve()
+        .onStatus(
+            HttpStatus::is4xxClientError,
+            clientResponse -> {
+              log.info("status code 4xx is : {}", clientResponse.statusCode().value());
+              return clientResponse
+                  .bodyToMono(String.class)
+                  .flatMap(msg -> Mono.error(new ReviewsClientException(msg)));
+            })
         .onStatus(
             HttpStatus::is5xxServerError,
             clientResponse -> {
@@ -58,7 +171,30 @@ public class ReviewsRestClient {
                               new ReviewsServerException(
                                   msg.concat(" Review Service Not Available"))));
             })
-        .bodyToFlux(Review.class)
-        .retryWhen(RetryUtil.retrySpec());
+        .bodyToFlux(Review.class);
+  }
+
+  // errors raised by the review service, connection failures are passed on as they are
+  private Throwable rsocketError(RSocketErrorException ex) {
+    if (ex instanceof ApplicationErrorException) {
+      return new ReviewsServerException(ex.getMessage().concat(" Review Service Not Available"));
+    }
+    return ex;
+  }
+
+  // one count per failed call, after retries, tagged with the exception that reached the caller
+  private void countError(Throwable ex) {
+    meterRegistry
+        .counter(
+            "movies.client.errors", "client", CLIENT_NAME, "exception", ex.getClass().getSimpleName())
+        .increment();
+  }
+
+  private CircuitBreaker circuitBreaker() {
+    return circuitBreakerRegistry.circuitBreaker(CLIENT_NAME);
+  }
+
+  private Bulkhead bulkhead() {
+    return bulkheadRegistry.bulkhead(CLIENT_NAME);
   }
 }
@@ -0,0 +1,9 @@
+package com.reactivespring.client;
+
+// how the rest clients reach the backend services, set with restClient.transport
+public enum Transport {
+  HTTP,
+  // request-response and request-stream over one connection per backend, with the caller's demand
+  // carried end to end. projections and review summaries still go over http
+  RSOCKET
+}
@@ -0,0 +1,54 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "movies.admission")
+public class AdmissionProperties {
+
+  private boolean enabled = true;
+
+  // requests in flight at once, lower priorities are only admitted up to their share of it
+  private int maxConcurrency = 256;
+
+  // a request that can't be admitted right away waits at most this long before it gets a 503
+  private Duration maxQueueTime = Duration.ofMillis(100);
+
+  private int maxQueueSize = 512;
+
+  // open stream subscriptions, counted apart from maxConcurrency since they last for minutes to
+  // hours. one over the limit is rejected right away, waiting would not free a stream
+  private int maxStreams = 10000;
+
+  private Duration retryAfter = Duration.ofSeconds(1);
+
+  private Priority defaultPriority = Priority.NORMAL;
+
+  // path pattern to priority, the first matching pattern wins
+  private Map<String, Priority> routes = new LinkedHashMap<>();
+
+  public enum Priority {
+    HIGH(1.0),
+    NORMAL(0.8),
+    LOW(0.5),
+    // long lived subscriptions, admitted up to maxStreams instead of maxConcurrency
+    STREAM(0),
+    // never queued or rejected, e.g. health checks
+    EXEMPT(0);
+
+    private final double share;
+
+    Priority(double share) {
+      this.share = share;
+    }
+
+    public int capacity(int maxConcurrency) {
+      return (int) Math.ceil(maxConcurrency * share);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.reactivespring.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.reactive.client.DefaultWebClientExchangeTagsProvider;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// adds the logical client and the retry attempt to the http.client.requests tags.
+// a retried call re-sends the same ClientRequest, so the attempt counter lives in its attributes
+public class ClientExchangeTagsProvider extends DefaultWebClientExchangeTagsProvider {
+  private static final String CLIENT_ATTRIBUTE =
+      ClientExchangeTagsProvider.class.getName() + ".client";
+  private static final String ATTEMPT_ATTRIBUTE =
+      ClientExchangeTagsProvider.class.getName() + ".attempt";
+
+  @Override
+  public Iterable<Tag> tags(ClientRequest request, ClientResponse response, Throwable throwable) {
+    var client = request.attribute(CLIENT_ATTRIBUTE).map(Object::toString).orElse("none");
+    var attempt =
+        request
+            .attribute(ATTEMPT_ATTRIBUTE)
+            .map(counter -> String.valueOf(((AtomicInteger) counter).get()))
+            .orElse("1");
+    return Tags.concat(
+        super.tags(request, response, throwable), "client", client, "attempt", attempt);
+  }
+
+  public static Consumer<WebClient.RequestHeadersSpec<?>> tagRequests(String client) {
+    return request ->
+        request.attribute(CLIENT_ATTRIBUTE, client).attribute(ATTEMPT_ATTRIBUTE, new AtomicInteger());
+  }
+
+  // must run inside the metrics filter, which only reads the tags once the exchange completes
+  public static ExchangeFilterFunction countAttempts() {
+    return (request, next) -> {
+      request
+          .attribute(ATTEMPT_ATTRIBUTE)
+          .ifPresent(counter -> ((AtomicInteger) counter).incrementAndGet());
+      return next.exchange(request);
+    };
+  }
+}
@@ -0,0 +1,33 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "rest-client")
+public class ConnectionPoolProperties {
+
+  private Map<String, Pool> pools = new HashMap<>();
+
+  public Pool pool(String name) {
+    return pools.getOrDefault(name, new Pool());
+  }
+
+  @Data
+  public static class Pool {
+    private int maxConnections = 100;
+    private int pendingAcquireMaxCount = 500;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration evictInBackground = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    // no response timeout when unset, which long-lived streams rely on
+    private Duration responseTimeout;
+    private boolean keepAlive = true;
+  }
+}
@@ -0,0 +1,57 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.util.Deadline;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// applies the caller's remaining budget to every outbound call and forwards it downstream
+public class DeadlineExchangeFilter implements ExchangeFilterFunction {
+
+  @Override
+  public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+    return Mono.deferContextual(
+        context -> {
+          var deadline = context.<Deadline>getOrEmpty(Deadline.class);
+          if (deadline.isEmpty()) {
+            return next.exchange(request);
+          }
+          var remaining = deadline.get().remaining();
+          if (remaining.isZero()) {
+            return Mono.error(deadlineExceeded(request));
+          }
+          var withDeadline =
+              ClientRequest.from(request)
+                  .header(Deadline.HEADER, String.valueOf(Math.max(1, remaining.toMillis())))
+                  .build();
+          return next.exchange(withDeadline)
+              .timeout(remaining, Mono.error(() -> deadlineExceeded(request)))
+              .map(
+                  response ->
+                      response
+                          .mutate()
+                          .body(body -> withinDeadline(body, deadline.get(), request))
+                          .build());
+        });
+  }
+
+  // the exchange completes with the headers, the body is read later and must not outlast the
+  // deadline either. each buffer is awaited for no longer than what is left of the budget
+  private Flux<DataBuffer> withinDeadline(
+      Flux<DataBuffer> body, Deadline deadline, ClientRequest request) {
+    return body.timeout(
+        Mono.delay(deadline.remaining()),
+        buffer -> Mono.delay(deadline.remaining()),
+        Flux.defer(() -> Flux.error(deadlineExceeded(request))));
+  }
+
+  private DeadlineExceededException deadlineExceeded(ClientRequest request) {
+    return new DeadlineExceededException(
+        "Deadline exceeded calling " + request.method() + " " + request.url());
+  }
+}
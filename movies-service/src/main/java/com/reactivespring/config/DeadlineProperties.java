@@ -0,0 +1,18 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "movies.deadline")
+public class DeadlineProperties {
+
+  private Duration defaultTimeout = Duration.ofSeconds(5);
+
+  // path pattern to timeout, a zero timeout means the route has no deadline
+  private Map<String, Duration> routes = new LinkedHashMap<>();
+}
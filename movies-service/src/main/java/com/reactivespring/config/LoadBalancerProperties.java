@@ -0,0 +1,41 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "rest-client.balancer")
+public class LoadBalancerProperties {
+
+  private boolean enabled = true;
+
+  // downstream name to the base urls of its instances, e.g. http://localhost:8090. requests keep
+  // the path of restClient.moviesInfoUrl / reviewsInfoUrl and go to one of these instead of its
+  // host. a downstream without instances is called on that host directly. the movieinfo stream is
+  // pinned to its instance so it can resume there, see LoadBalancer.PIN_ATTRIBUTE
+  private Map<String, List<URI>> instances = new HashMap<>();
+
+  // how quickly the latency average forgets older calls
+  private Duration decayTime = Duration.ofSeconds(10);
+
+  // an instance failing this many calls in a row is left out for ejectionTime times the number
+  // of times it was ejected since its last success, up to maxEjectionTime
+  private int consecutiveErrors = 5;
+
+  private Duration ejectionTime = Duration.ofSeconds(30);
+
+  private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+  // never eject more than this share of a downstream's instances, at least one is always kept
+  private int maxEjectionPercent = 50;
+
+  public List<URI> instances(String downstream) {
+    return instances.getOrDefault(downstream, List.of());
+  }
+}
@@ -0,0 +1,36 @@
+package com.reactivespring.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.rsocket.RSocketRequester;
+
+import java.net.URI;
+
+// one multiplexed connection per backend, opened on first use and reopened after it drops, so
+// these cost nothing while restClient.transport is http. data is cbor, the binary counterpart of
+// the smile used over http
+@Configuration
+public class RSocketClientConfig {
+
+  @Value("${restClient.rsocket.moviesInfoUrl:tcp://localhost:7080}")
+  private URI movieInfoUrl;
+
+  @Value("${restClient.rsocket.reviewsUrl:tcp://localhost:7081}")
+  private URI reviewsUrl;
+
+  @Bean
+  public RSocketRequester movieInfoRequester(RSocketRequester.Builder builder) {
+    return builder
+        .dataMimeType(MediaType.APPLICATION_CBOR)
+        .tcp(movieInfoUrl.getHost(), movieInfoUrl.getPort());
+  }
+
+  @Bean
+  public RSocketRequester reviewsRequester(RSocketRequester.Builder builder) {
+    return builder
+        .dataMimeType(MediaType.APPLICATION_CBOR)
+        .tcp(reviewsUrl.getHost(), reviewsUrl.getPort());
+  }
+}
@@ -1,14 +1,132 @@
 package com.reactivespring.config;
 
+import com.reactivespring.util.ConcurrencyLimiter;
+import com.reactivespring.util.LoadBalancer;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
 public class WebClientConfig {
+  private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+  private static final MediaType JSON_FALLBACK = MediaType.valueOf("application/json;q=0.9");
+
+  @Value("${restClient.smile.enabled:true}")
+  private boolean smileEnabled;
+
+  @Value("${restClient.compression.enabled:true}")
+  private boolean compressionEnabled;
+
+  @Bean
+  public ClientExchangeTagsProvider clientExchangeTagsProvider() {
+    return new ClientExchangeTagsProvider();
+  }
+
+  @Bean
+  public WebClient movieInfoWebClient(
+      WebClient.Builder builder,
+      ConnectionPoolProperties poolProperties,
+      ConcurrencyLimiter concurrencyLimiter,
+      LoadBalancer loadBalancer) {
+    return webClient(
+        builder,
+        "moviesInfo",
+        poolProperties.pool("moviesInfo"),
+        smileEnabled,
+        List.of(concurrencyLimiter.filter("moviesInfo"), loadBalancer.filter("moviesInfo")));
+  }
 
   @Bean
-  public WebClient webClient(WebClient.Builder builder) {
-    return builder.build();
+  public WebClient movieInfoStreamWebClient(
+      WebClient.Builder builder,
+      ConnectionPoolProperties poolProperties,
+      LoadBalancer loadBalancer) {
+    return webClient(
+        builder,
+        "moviesInfoStream",
+        poolProperties.pool("moviesInfoStream"),
+        false,
+        List.of(loadBalancer.filter("moviesInfo")));
+  }
+
+  @Bean
+  public WebClient reviewsWebClient(
+      WebClient.Builder builder,
+      ConnectionPoolProperties poolProperties,
+      ConcurrencyLimiter concurrencyLimiter,
+      LoadBalancer loadBalancer) {
+    return webClient(
+        builder,
+        "reviews",
+        poolProperties.pool("reviews"),
+        smileEnabled,
+        List.of(concurrencyLimiter.filter("reviews"), loadBalancer.filter("reviews")));
+  }
+
+  @Bean
+  public WebClient reviewsStreamWebClient(
+      WebClient.Builder builder,
+      ConnectionPoolProperties poolProperties,
+      LoadBalancer loadBalancer) {
+    return webClient(
+        builder,
+        "reviewsStream",
+        poolProperties.pool("reviewsStream"),
+        false,
+        List.of(loadBalancer.filter("reviews")));
+  }
+
+  // streams stay ndjson, smile is only asked for on request/response calls.
+  // the concurrency limit comes after the deadline, so time spent queued for it counts against the
+  // deadline but not as backend rtt, and streams are not limited at all. the balancer is innermost:
+  // the limit covers all instances of a backend, and streams share their instances' health with
+  // the request/response calls
+  private WebClient webClient(
+      WebClient.Builder builder,
+      String name,
+      ConnectionPoolProperties.Pool pool,
+      boolean preferSmile,
+      List<ExchangeFilterFunction> filters) {
+    var connectionProvider =
+        ConnectionProvider.builder(name)
+            .maxConnections(pool.getMaxConnections())
+            .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+            .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+            .maxIdleTime(pool.getMaxIdleTime())
+            .maxLifeTime(pool.getMaxLifeTime())
+            .evictInBackground(pool.getEvictInBackground())
+            .metrics(true)
+            .build();
+    var httpClient =
+        HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+            .option(ChannelOption.SO_KEEPALIVE, pool.isKeepAlive())
+            .compress(compressionEnabled);
+    if (pool.getResponseTimeout() != null) {
+      httpClient = httpClient.responseTimeout(pool.getResponseTimeout());
+    }
+    var webClientBuilder =
+        builder
+            .clone()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .defaultRequest(ClientExchangeTagsProvider.tagRequests(name))
+            .filter(ClientExchangeTagsProvider.countAttempts())
+            .filter(new DeadlineExchangeFilter())
+            .filters(registered -> registered.addAll(filters));
+    if (preferSmile) {
+      webClientBuilder.defaultHeaders(headers -> headers.setAccept(List.of(SMILE, JSON_FALLBACK)));
+    }
+    return webClientBuilder.build();
   }
 }
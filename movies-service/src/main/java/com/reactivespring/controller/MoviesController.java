@@ -1,38 +1,105 @@
 package com.reactivespring.controller;
 
-import com.reactivespring.client.MovieInfoRestClient;
-import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.client.MovieInfoStreamHub;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieResult;
+import com.reactivespring.service.MoviesService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
 @RestController
 @RequestMapping("/v1/movies")
 @RequiredArgsConstructor
 public class MoviesController {
-  private final MovieInfoRestClient moviesClient;
-  private final ReviewsRestClient reviewClient;
+  public static final String REVIEWS_OMITTED_HEADER = "X-Reviews-Omitted";
+  private final MovieInfoStreamHub movieInfoStreamHub;
+  private final MoviesService moviesService;
+
+  @Value("${movies.batch.maxIds:200}")
+  private int batchMaxIds;
 
   @GetMapping("/{id}")
-  public Mono<Movie> getMovieById(@PathVariable("id") String movieId) {
-    return moviesClient
-        .retrieveMovieInfo(movieId)
-        .flatMap(
-            movieInfo -> {
-              var reviewlistMono = reviewClient.getReviews(movieId).collectList();
-              return reviewlistMono.map(reviews -> new Movie(movieInfo, reviews));
+  public Mono<ResponseEntity<Movie>> getMovieById(
+      @PathVariable("id") String movieId,
+      @RequestParam(value = "fields", required = false) Set<String> fields) {
+    return moviesService
+        .getMovieById(movieId, fields(fields))
+        .map(
+            movie -> {
+              var response = ResponseEntity.ok();
+              if (movie.isReviewsOmitted()) {
+                response.header(REVIEWS_OMITTED_HEADER, "true");
+              }
+              return response.body(movie);
             });
   }
 
+  @GetMapping
+  public Flux<MovieResult> getMovies(
+      @RequestParam("ids") List<String> movieIds,
+      @RequestParam(value = "fields", required = false) Set<String> fields) {
+    return batch(movieIds, fields(fields));
+  }
+
+  @PostMapping(
+      consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<MovieResult> streamMovies(
+      @RequestBody Mono<List<String>> movieIds,
+      @RequestParam(value = "fields", required = false) Set<String> fields) {
+    var selected = fields(fields);
+    return movieIds.flatMapMany(ids -> batch(ids, selected));
+  }
+
+  private Flux<MovieResult> batch(List<String> movieIds, Set<String> fields) {
+    if (movieIds.size() > batchMaxIds) {
+      return Flux.error(
+          new ResponseStatusException(
+              HttpStatus.BAD_REQUEST, "At most " + batchMaxIds + " ids are allowed per request"));
+    }
+    return moviesService.getMovies(Flux.fromIterable(movieIds), fields);
+  }
+
   @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
   public Flux<MovieInfo> streamMovieInfos() {
-    return moviesClient.retrieveMovieInfoStream();
+    return movieInfoStreamHub.subscribe();
+  }
+
+  @GetMapping(value = "/stream/enriched", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<Movie> streamMovies(
+      @RequestParam(value = "reviewUpdates", defaultValue = "false") boolean reviewUpdates) {
+    return moviesService.streamMovies(reviewUpdates);
+  }
+
+  // ?fields=name,year,reviews picks movie info fields and whether the reviews are included
+  private Set<String> fields(Set<String> fields) {
+    if (fields == null) {
+      return Set.of();
+    }
+    var allowed = new TreeSet<>(MovieInfo.FIELDS);
+    allowed.add(Movie.REVIEWS_FIELD);
+    if (!allowed.containsAll(fields)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "fields must be any of " + allowed);
+    }
+    return fields;
   }
 }
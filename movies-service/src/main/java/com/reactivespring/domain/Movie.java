@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,7 +12,27 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Movie {
+    // selects the reviews in ?fields=, next to the movie info fields
+    public static final String REVIEWS_FIELD = "reviews";
 
     private MovieInfo movieInfo;
+    // the full list, or a summary of the reviews when movies.reviews.mode is summary
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Review> reviewList;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ReviewSummary reviewSummary;
+    // true when the reviews did not arrive within their latency budget and were left out
+    private boolean reviewsOmitted;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, null, false);
+    }
+
+    public static Movie withReviewSummary(MovieInfo movieInfo, ReviewSummary reviewSummary) {
+        return new Movie(movieInfo, null, reviewSummary, false);
+    }
+
+    public static Movie withoutReviews(MovieInfo movieInfo) {
+        return new Movie(movieInfo, List.of(), null, true);
+    }
 }
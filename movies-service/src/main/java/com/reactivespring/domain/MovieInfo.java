@@ -1,6 +1,7 @@
 package com.reactivespring.domain;
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,12 +12,18 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Validated
+// properties left out of a ?fields= projection are null and not written at all
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class MovieInfo {
+    public static final Set<String> FIELDS =
+            Set.of("movieInfoId", "name", "year", "cast", "release_date");
+
     private String movieInfoId;
     @NotBlank(message = "movieInfo.name must be present")
     private String name;
@@ -27,4 +34,22 @@ public class MovieInfo {
     @NotNull
     private List<@NotBlank(message = "movieInfo.cast must be present") String> cast;
     private LocalDate release_date;
+    // position of the event on the movieinfo stream, only set on streamed movie infos
+    private Long sequenceId;
+    // true on a streamed delete, the movie info then carries nothing but its id
+    private Boolean deleted;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null, null);
+    }
+
+    // the same projection movies-info-service applies, for movie infos that are already local
+    public MovieInfo select(Set<String> fields) {
+        return new MovieInfo(
+                movieInfoId,
+                fields.contains("name") ? name : null,
+                fields.contains("year") ? year : null,
+                fields.contains("cast") ? cast : null,
+                fields.contains("release_date") ? release_date : null);
+    }
 }
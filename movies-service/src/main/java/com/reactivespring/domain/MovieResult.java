@@ -0,0 +1,17 @@
+package com.reactivespring.domain;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieResult {
+
+    private String movieId;
+    private Movie movie;
+    private Integer status;
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private Long count;
+    private Double averageRating;
+    // number of reviews per rating rounded down
+    private Map<Integer, Long> ratingHistogram;
+    private List<Review> recentReviews;
+}
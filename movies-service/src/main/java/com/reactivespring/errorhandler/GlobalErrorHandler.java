@@ -1,7 +1,12 @@
 package com.reactivespring.errorhandler;
 
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.DeadlineExceededException;
 import com.reactivespring.exception.MoviesInfoClientException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -14,4 +19,20 @@ public class GlobalErrorHandler {
     log.error("Exception caught in handleClientException : {}", exception.getMessage());
     return ResponseEntity.status(exception.getStatusCode()).body(exception.getMessage());
   }
+
+  @ExceptionHandler({
+    CallNotPermittedException.class,
+    BulkheadFullException.class,
+    ConcurrencyLimitExceededException.class
+  })
+  public ResponseEntity<String> handleDownstreamRejection(RuntimeException exception) {
+    log.error("Exception caught in handleDownstreamRejection : {}", exception.getMessage());
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(exception.getMessage());
+  }
+
+  @ExceptionHandler(DeadlineExceededException.class)
+  public ResponseEntity<String> handleDeadlineExceeded(DeadlineExceededException exception) {
+    log.error("Exception caught in handleDeadlineExceeded : {}", exception.getMessage());
+    return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(exception.getMessage());
+  }
 }
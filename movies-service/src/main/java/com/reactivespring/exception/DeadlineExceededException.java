@@ -0,0 +1,14 @@
+package com.reactivespring.exception;
+
+import org.springframework.web.reactive.function.client.WebClientException;
+
+// a WebClientException, so retrieve() doesn't wrap it when the deadline passes while the body is
+// still being read
+public class DeadlineExceededException extends WebClientException {
+    private String message;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
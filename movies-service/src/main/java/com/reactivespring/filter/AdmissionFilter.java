@@ -0,0 +1,256 @@
+package com.reactivespring.filter;
+
+import com.reactivespring.config.AdmissionProperties;
+import com.reactivespring.config.AdmissionProperties.Priority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// sheds load before any work is done: beyond maxConcurrency requests wait briefly, highest
+// priority first, and get a 503 with Retry-After when no slot frees up in time. lower priorities
+// are only admitted up to their share of maxConcurrency. streams hold their slot for as long as
+// they are open, so they are counted against maxStreams instead and never take the slots of single
+// movie lookups. runs after the metrics filter, so rejections show up in http.server.requests
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@EnableConfigurationProperties(AdmissionProperties.class)
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionFilter implements WebFilter {
+  private static final String DEFAULT_ROUTE = "default";
+
+  private final AdmissionProperties admissionProperties;
+  private final MeterRegistry meterRegistry;
+  private final Queue<Waiter> waiters =
+      new PriorityQueue<>(
+          Comparator.comparing((Waiter waiter) -> waiter.priority)
+              .thenComparingLong(waiter -> waiter.sequence));
+  private List<Route> routes = List.of();
+  private long sequence;
+  private int inFlight;
+  private int streams;
+
+  @PostConstruct
+  void init() {
+    routes =
+        admissionProperties.getRoutes().entrySet().stream()
+            .map(
+                route ->
+                    new Route(
+                        route.getKey(),
+                        PathPatternParser.defaultInstance.parse(route.getKey()),
+                        route.getValue()))
+            .collect(Collectors.toList());
+    Gauge.builder("movies.admission.inflight", this, AdmissionFilter::inFlight)
+        .register(meterRegistry);
+    Gauge.builder("movies.admission.queue", this, AdmissionFilter::queued).register(meterRegistry);
+    Gauge.builder("movies.admission.streams", this, AdmissionFilter::streams)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!admissionProperties.isEnabled()) {
+      return chain.filter(exchange);
+    }
+    var route = route(exchange);
+    var priority = route.priority;
+    if (priority == Priority.EXEMPT) {
+      return chain.filter(exchange);
+    }
+    if (priority == Priority.STREAM) {
+      if (!openStream()) {
+        return reject(exchange, route.pattern, Admission.STREAM_LIMIT);
+      }
+      return chain.filter(exchange).doFinally(signal -> closeStream());
+    }
+    var queuedAt = System.nanoTime();
+    return admit(priority)
+        .flatMap(
+            admission -> {
+              meterRegistry
+                  .timer("movies.admission.queue.time", "route", route.pattern)
+                  .record(Duration.ofNanos(System.nanoTime() - queuedAt));
+              if (admission != Admission.ADMITTED) {
+                return reject(exchange, route.pattern, admission);
+              }
+              return chain.filter(exchange).doFinally(signal -> release());
+            });
+  }
+
+  private Mono<Admission> admit(Priority priority) {
+    return Mono.create(
+        sink -> {
+          var waiter = new Waiter(sink, priority);
+          sink.onCancel(() -> cancel(waiter));
+          synchronized (this) {
+            if (waiter.cancelled) {
+              return;
+            }
+            if (inFlight >= priority.capacity(admissionProperties.getMaxConcurrency())) {
+              if (waiters.size() >= admissionProperties.getMaxQueueSize()) {
+                sink.success(Admission.QUEUE_FULL);
+                return;
+              }
+              waiter.sequence = sequence++;
+              waiters.add(waiter);
+              waiter.expiry =
+                  Schedulers.parallel()
+                      .schedule(
+                          () -> expire(waiter),
+                          admissionProperties.getMaxQueueTime().toMillis(),
+                          TimeUnit.MILLISECONDS);
+              return;
+            }
+            inFlight++;
+            waiter.admitted = true;
+          }
+          sink.success(Admission.ADMITTED);
+        });
+  }
+
+  // expiry and admission are both decided under the lock, so a slot is never handed to a request
+  // that has already been told to go away
+  private void expire(Waiter waiter) {
+    synchronized (this) {
+      if (!waiters.remove(waiter)) {
+        return;
+      }
+    }
+    waiter.sink.success(Admission.QUEUE_TIMEOUT);
+  }
+
+  // MonoSink only runs onCancel when the admission was not delivered, so a granted slot goes back
+  private void cancel(Waiter waiter) {
+    synchronized (this) {
+      waiter.cancelled = true;
+      if (waiters.remove(waiter)) {
+        waiter.expiry.dispose();
+        return;
+      }
+      if (!waiter.admitted) {
+        return;
+      }
+    }
+    release();
+  }
+
+  private synchronized boolean openStream() {
+    if (streams >= admissionProperties.getMaxStreams()) {
+      return false;
+    }
+    streams++;
+    return true;
+  }
+
+  private synchronized void closeStream() {
+    streams--;
+  }
+
+  private void release() {
+    List<Waiter> admitted = new ArrayList<>();
+    synchronized (this) {
+      inFlight--;
+      while (!waiters.isEmpty()
+          && inFlight
+              < waiters.peek().priority.capacity(admissionProperties.getMaxConcurrency())) {
+        var waiter = waiters.poll();
+        waiter.expiry.dispose();
+        inFlight++;
+        waiter.admitted = true;
+        admitted.add(waiter);
+      }
+    }
+    admitted.forEach(waiter -> waiter.sink.success(Admission.ADMITTED));
+  }
+
+  private Mono<Void> reject(ServerWebExchange exchange, String route, Admission admission) {
+    meterRegistry
+        .counter(
+            "movies.admission.rejected",
+            "route",
+            route,
+            "reason",
+            admission.name().toLowerCase())
+        .increment();
+    log.debug("rejected {} : {}", exchange.getRequest().getPath(), admission);
+    var response = exchange.getResponse();
+    response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+    response
+        .getHeaders()
+        .set(
+            HttpHeaders.RETRY_AFTER,
+            String.valueOf(Math.max(1, admissionProperties.getRetryAfter().toSeconds())));
+    return response.setComplete();
+  }
+
+  private Route route(ServerWebExchange exchange) {
+    var path = exchange.getRequest().getPath().pathWithinApplication();
+    return routes.stream()
+        .filter(route -> route.pathPattern.matches(path))
+        .findFirst()
+        .orElse(new Route(DEFAULT_ROUTE, null, admissionProperties.getDefaultPriority()));
+  }
+
+  synchronized int inFlight() {
+    return inFlight;
+  }
+
+  synchronized int queued() {
+    return waiters.size();
+  }
+
+  synchronized int streams() {
+    return streams;
+  }
+
+  private enum Admission {
+    ADMITTED,
+    QUEUE_FULL,
+    QUEUE_TIMEOUT,
+    STREAM_LIMIT
+  }
+
+  @RequiredArgsConstructor
+  private static class Route {
+    private final String pattern;
+    private final PathPattern pathPattern;
+    private final Priority priority;
+  }
+
+  @RequiredArgsConstructor
+  private static class Waiter {
+    private final MonoSink<Admission> sink;
+    private final Priority priority;
+    private long sequence;
+    private boolean cancelled;
+    private boolean admitted;
+    private Disposable expiry;
+  }
+}
@@ -0,0 +1,97 @@
+package com.reactivespring.filter;
+
+import com.reactivespring.config.DeadlineProperties;
+import com.reactivespring.util.Deadline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Component
+@EnableConfigurationProperties(DeadlineProperties.class)
+@RequiredArgsConstructor
+@Slf4j
+public class DeadlineFilter implements WebFilter {
+  private final DeadlineProperties deadlineProperties;
+  private List<Route> routes = List.of();
+
+  @PostConstruct
+  void init() {
+    routes =
+        deadlineProperties.getRoutes().entrySet().stream()
+            .map(
+                route ->
+                    new Route(
+                        PathPatternParser.defaultInstance.parse(route.getKey()), route.getValue()))
+            .collect(Collectors.toList());
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    var routeTimeout = routeTimeout(exchange);
+    var timeout =
+        callerTimeout(exchange)
+            .map(callerTimeout -> min(callerTimeout, routeTimeout))
+            .orElse(routeTimeout);
+    if (timeout.isZero()) {
+      return chain.filter(exchange);
+    }
+    var deadline = Deadline.after(timeout);
+    return chain
+        .filter(exchange)
+        .timeout(
+            timeout,
+            Mono.error(
+                () -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "deadline exceeded")))
+        .contextWrite(context -> context.put(Deadline.class, deadline));
+  }
+
+  private Optional<Duration> callerTimeout(ServerWebExchange exchange) {
+    var header = exchange.getRequest().getHeaders().getFirst(Deadline.HEADER);
+    if (header == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(Duration.ofMillis(Math.max(1, Long.parseLong(header))));
+    } catch (NumberFormatException ex) {
+      log.info("ignoring invalid {} header : {}", Deadline.HEADER, header);
+      return Optional.empty();
+    }
+  }
+
+  private Duration routeTimeout(ServerWebExchange exchange) {
+    var path = exchange.getRequest().getPath().pathWithinApplication();
+    return routes.stream()
+        .filter(route -> route.pathPattern.matches(path))
+        .map(route -> route.timeout)
+        .findFirst()
+        .orElse(deadlineProperties.getDefaultTimeout());
+  }
+
+  private Duration min(Duration callerTimeout, Duration routeTimeout) {
+    if (routeTimeout.isZero()) {
+      return callerTimeout;
+    }
+    return callerTimeout.compareTo(routeTimeout) < 0 ? callerTimeout : routeTimeout;
+  }
+
+  @RequiredArgsConstructor
+  private static class Route {
+    private final PathPattern pathPattern;
+    private final Duration timeout;
+  }
+}
@@ -0,0 +1,242 @@
+package com.reactivespring.service;
+
+import com.reactivespring.cache.MovieInfoReplica;
+import com.reactivespring.client.MovieInfoRestClient;
+import com.reactivespring.client.MovieInfoStreamHub;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieResult;
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MoviesService {
+  private final MovieInfoRestClient moviesClient;
+  private final ReviewsRestClient reviewClient;
+  private final MovieInfoReplica movieInfoReplica;
+  private final MovieInfoStreamHub movieInfoStreamHub;
+  private final MeterRegistry meterRegistry;
+
+  @Value("${movies.batch.concurrency:16}")
+  private int batchConcurrency;
+
+  @Value("${movies.aggregation.mode:sequential}")
+  private AggregationMode aggregationMode;
+
+  @Value("${movies.stream.concurrency:8}")
+  private int streamConcurrency;
+
+  @Value("${movies.stream.bufferSize:256}")
+  private int streamBufferSize;
+
+  @Value("${movies.reviews.mode:full}")
+  private ReviewsMode reviewsMode;
+
+  @Value("${movies.reviews.recent:5}")
+  private int recentReviews;
+
+  @Value("${movies.reviews.degraded:true}")
+  private boolean reviewsDegradable;
+
+  @Value("${movies.reviews.latencyBudget:2s}")
+  private Duration reviewsLatencyBudget;
+
+  public Mono<Movie> getMovieById(String movieId) {
+    return getMovieById(movieId, Set.of());
+  }
+
+  // an empty set of fields is the whole movie, otherwise only the selected movie info fields are
+  // fetched and the reviews are not asked for at all unless they are selected too
+  public Mono<Movie> getMovieById(String movieId, Set<String> fields) {
+    var movieInfoMono = retrieveMovieInfo(movieId, movieInfoFields(fields));
+    if (!fields.isEmpty() && !fields.contains(Movie.REVIEWS_FIELD)) {
+      return movieInfoMono.map(movieInfo -> new Movie(movieInfo, null));
+    }
+    if (aggregationMode == AggregationMode.PARALLEL) {
+      return getMovieByIdParallel(movieId, movieInfoMono);
+    }
+    return movieInfoMono.flatMap(
+        movieInfo -> {
+          var reviewlistMono = retrieveReviews(movieId);
+          return reviewlistMono.map(reviews -> toMovie(movieInfo, reviews));
+        });
+  }
+
+  // both calls start at once, zip cancels the reviews call as soon as the info call fails
+  private Mono<Movie> getMovieByIdParallel(String movieId, Mono<MovieInfo> movieInfoMono) {
+    return Mono.zip(movieInfoMono, retrieveReviews(movieId), this::toMovie);
+  }
+
+  // selecting only the reviews still brings the id of the movie info along
+  private Set<String> movieInfoFields(Set<String> fields) {
+    if (fields.isEmpty()) {
+      return fields;
+    }
+    var movieInfoFields = new HashSet<>(fields);
+    movieInfoFields.remove(Movie.REVIEWS_FIELD);
+    return movieInfoFields.isEmpty() ? Set.of("movieInfoId") : movieInfoFields;
+  }
+
+  // yields how the reviews end up on the movie, so the movie info can be joined in afterwards.
+  // an omitted result means the movie info alone is still returned
+  private Mono<Function<MovieInfo, Movie>> retrieveReviews(String movieId) {
+    Mono<Function<MovieInfo, Movie>> reviews;
+    if (reviewsMode == ReviewsMode.SUMMARY) {
+      reviews =
+          reviewClient
+              .getReviewSummary(movieId, recentReviews)
+              .<Function<MovieInfo, Movie>>map(
+                  summary -> movieInfo -> Movie.withReviewSummary(movieInfo, summary))
+              .defaultIfEmpty(movieInfo -> new Movie(movieInfo, List.of()));
+    } else {
+      reviews =
+          reviewClient
+              .getReviews(movieId)
+              .collectList()
+              .map(reviewList -> movieInfo -> new Movie(movieInfo, reviewList));
+    }
+    if (!reviewsDegradable) {
+      return reviews;
+    }
+    return reviews
+        .timeout(reviewsLatencyBudget)
+        .onErrorResume(this::isDegradable, ex -> omitReviews(movieId, ex));
+  }
+
+  private Mono<Function<MovieInfo, Movie>> omitReviews(String movieId, Throwable ex) {
+    log.info("omitting reviews of movie {} : {}", movieId, ex.toString());
+    meterRegistry
+        .counter("movies.reviews.omitted", "reason", ex.getClass().getSimpleName())
+        .increment();
+    return Mono.just(Movie::withoutReviews);
+  }
+
+  private boolean isDegradable(Throwable ex) {
+    return ex instanceof TimeoutException
+        || ex instanceof CallNotPermittedException
+        || ex instanceof BulkheadFullException
+        || ex instanceof ConcurrencyLimitExceededException;
+  }
+
+  private Movie toMovie(MovieInfo movieInfo, Function<MovieInfo, Movie> reviews) {
+    return reviews.apply(movieInfo);
+  }
+
+  // the upstream feeds are hot, so events a slow consumer has not requested yet are buffered up to
+  // a fixed size instead of growing without bound. a review update only re-emits the current state
+  // of its movie, so past that the oldest buffered one is dropped and the stream goes on. a movie
+  // whose reviews can't be had is still emitted, without them, whatever the reviews call failed with
+  public Flux<Movie> streamMovies(boolean withReviewUpdates) {
+    var movies =
+        movieInfoStreamHub
+            .subscribe()
+            .filter(movieInfo -> !Boolean.TRUE.equals(movieInfo.getDeleted()))
+            .flatMapSequential(
+                movieInfo ->
+                    retrieveReviews(movieInfo.getMovieInfoId())
+                        .onErrorResume(ex -> omitReviews(movieInfo.getMovieInfoId(), ex))
+                        .map(reviews -> toMovie(movieInfo, reviews)),
+                streamConcurrency);
+    if (!withReviewUpdates) {
+      return movies;
+    }
+    // a new review re-emits the whole movie it belongs to
+    var reviewUpdates =
+        reviewClient
+            .retrieveReviewStream()
+            .onBackpressureBuffer(
+                streamBufferSize, review -> streamOverflow(), BufferOverflowStrategy.DROP_OLDEST)
+            .flatMapSequential(
+                review ->
+                    getMovieById(String.valueOf(review.getMovieInfoId()))
+                        .onErrorResume(
+                            ex -> {
+                              log.info(
+                                  "skipping review update of movie {} : {}",
+                                  review.getMovieInfoId(),
+                                  ex.getMessage());
+                              return Mono.empty();
+                            }),
+                streamConcurrency);
+    return Flux.merge(movies, reviewUpdates);
+  }
+
+  private void streamOverflow() {
+    meterRegistry.counter("movies.stream.overflow").increment();
+  }
+
+  private Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+    return movieInfoReplica
+        .lookup(movieId)
+        .switchIfEmpty(Mono.defer(() -> moviesClient.retrieveMovieInfo(movieId)));
+  }
+
+  private Mono<MovieInfo> retrieveMovieInfo(String movieId, Set<String> fields) {
+    if (fields.isEmpty()) {
+      return retrieveMovieInfo(movieId);
+    }
+    return movieInfoReplica
+        .lookup(movieId)
+        .map(movieInfo -> movieInfo.select(fields))
+        .switchIfEmpty(Mono.defer(() -> moviesClient.retrieveMovieInfo(movieId, fields)));
+  }
+
+  public Flux<MovieResult> getMovies(Flux<String> movieIds) {
+    return getMovies(movieIds, Set.of());
+  }
+
+  // results are emitted in the order of the incoming ids, a failed id never fails the batch
+  public Flux<MovieResult> getMovies(Flux<String> movieIds, Set<String> fields) {
+    return movieIds.flatMapSequential(
+        movieId ->
+            getMovieById(movieId, fields)
+                .map(movie -> new MovieResult(movieId, movie, HttpStatus.OK.value(), null))
+                .switchIfEmpty(
+                    Mono.fromSupplier(
+                        () ->
+                            new MovieResult(
+                                movieId,
+                                null,
+                                HttpStatus.NOT_FOUND.value(),
+                                "There is no movie with id ".concat(movieId))))
+                .onErrorResume(ex -> Mono.just(failedResult(movieId, ex))),
+        batchConcurrency);
+  }
+
+  private MovieResult failedResult(String movieId, Throwable ex) {
+    log.info("movie {} failed in batch : {}", movieId, ex.getMessage());
+    var status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+    if (ex instanceof MoviesInfoClientException) {
+      status = ((MoviesInfoClientException) ex).getStatusCode();
+    } else if (ex instanceof CallNotPermittedException
+        || ex instanceof BulkheadFullException
+        || ex instanceof ConcurrencyLimitExceededException) {
+      status = HttpStatus.SERVICE_UNAVAILABLE.value();
+    } else if (ex instanceof DeadlineExceededException) {
+      status = HttpStatus.GATEWAY_TIMEOUT.value();
+    }
+    return new MovieResult(movieId, null, status, ex.getMessage());
+  }
+}
@@ -0,0 +1,56 @@
+package com.reactivespring.util;
+
+// vegas style concurrency limit: the lowest rtt seen is taken as the latency without queueing, and
+// limit * (1 - minRtt / rtt) estimates how many calls are queued downstream. the limit grows while
+// that estimate is small, shrinks when it is large and backs off sharply on failures
+public class AdaptiveLimit {
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final int probeInterval;
+  private double limit;
+  private long minRtt;
+  private long samples;
+
+  public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, int probeInterval) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.probeInterval = probeInterval;
+    this.limit = initialLimit;
+  }
+
+  public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+    // the downstream gets faster or slower for good, e.g. a new mongo index, so the baseline is
+    // forgotten now and then and learned again from the following samples
+    if (probeInterval > 0 && ++samples % probeInterval == 0) {
+      minRtt = 0;
+    }
+    if (dropped) {
+      setLimit(limit * BACKOFF_RATIO);
+      return;
+    }
+    if (minRtt == 0 || rttNanos < minRtt) {
+      minRtt = rttNanos;
+    }
+    // below half the limit in flight the caller is not pushing, the rtt says nothing about the limit
+    if (inFlight * 2 < limit) {
+      return;
+    }
+    var queued = limit * (1 - (double) minRtt / rttNanos);
+    var step = Math.max(1, Math.log10(limit));
+    if (queued <= 3 * step) {
+      setLimit(limit + step);
+    } else if (queued >= 6 * step) {
+      setLimit(limit - step);
+    }
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  private void setLimit(double newLimit) {
+    limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+  }
+}
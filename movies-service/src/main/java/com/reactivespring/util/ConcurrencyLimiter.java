@@ -0,0 +1,221 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// bounds the calls in flight to each backend by an AdaptiveLimit learned from their rtt.
+// calls over the limit wait in a bounded queue and are rejected when it is full or they waited
+// longer than maxQueueWait
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimiter {
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+  @Value("${restClient.limiter.enabled:true}")
+  private boolean enabled;
+
+  @Value("${restClient.limiter.initialLimit:20}")
+  private int initialLimit;
+
+  @Value("${restClient.limiter.minLimit:4}")
+  private int minLimit;
+
+  @Value("${restClient.limiter.maxLimit:200}")
+  private int maxLimit;
+
+  @Value("${restClient.limiter.probeInterval:1000}")
+  private int probeInterval;
+
+  @Value("${restClient.limiter.maxQueueSize:100}")
+  private int maxQueueSize;
+
+  @Value("${restClient.limiter.maxQueueWait:500ms}")
+  private Duration maxQueueWait;
+
+  // the rtt is measured up to the response headers, a 5xx or 429 counts as a drop
+  public ExchangeFilterFunction filter(String client) {
+    if (!enabled) {
+      return (request, next) -> next.exchange(request);
+    }
+    var limiter = limiters.computeIfAbsent(client, this::newLimiter);
+    return (request, next) ->
+        limiter
+            .acquire()
+            .flatMap(
+                permit ->
+                    next.exchange(request)
+                        .doOnSuccess(
+                            response ->
+                                permit.release(
+                                    response == null
+                                        || response.rawStatusCode() >= 500
+                                        || response.rawStatusCode() == 429))
+                        .doOnError(ex -> permit.release(true))
+                        .doOnCancel(permit::cancel));
+  }
+
+  private Limiter newLimiter(String client) {
+    var limiter =
+        new Limiter(client, new AdaptiveLimit(initialLimit, minLimit, maxLimit, probeInterval));
+    Gauge.builder("movies.client.limit", limiter.limit, AdaptiveLimit::getLimit)
+        .tag("client", client)
+        .register(meterRegistry);
+    Gauge.builder("movies.client.limit.inflight", limiter, Limiter::inFlight)
+        .tag("client", client)
+        .register(meterRegistry);
+    Gauge.builder("movies.client.limit.queue", limiter, Limiter::queued)
+        .tag("client", client)
+        .register(meterRegistry);
+    return limiter;
+  }
+
+  @RequiredArgsConstructor
+  private class Limiter {
+    private final String client;
+    private final AdaptiveLimit limit;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private int inFlight;
+
+    Mono<Permit> acquire() {
+      return Mono.create(
+          sink -> {
+            var waiter = new Waiter(sink);
+            sink.onCancel(() -> cancel(waiter));
+            synchronized (this) {
+              if (waiter.cancelled) {
+                return;
+              }
+              if (inFlight >= limit.getLimit()) {
+                if (waiters.size() >= maxQueueSize) {
+                  rejected("queue_full");
+                  sink.error(limitExceeded());
+                  return;
+                }
+                waiters.add(waiter);
+                waiter.expiry =
+                    Schedulers.parallel()
+                        .schedule(
+                            () -> expire(waiter),
+                            maxQueueWait.toMillis(),
+                            TimeUnit.MILLISECONDS);
+                return;
+              }
+              waiter.permit = new Permit(++inFlight);
+            }
+            sink.success(waiter.permit);
+          });
+    }
+
+    // expiry and grant are both decided under the lock, so a permit is never handed to a call
+    // that has already been rejected
+    private void expire(Waiter waiter) {
+      synchronized (this) {
+        if (!waiters.remove(waiter)) {
+          return;
+        }
+      }
+      rejected("queue_timeout");
+      waiter.sink.error(limitExceeded());
+    }
+
+    // MonoSink only runs onCancel when the permit was not delivered, so a granted one goes back
+    private void cancel(Waiter waiter) {
+      synchronized (this) {
+        waiter.cancelled = true;
+        if (waiters.remove(waiter)) {
+          waiter.expiry.dispose();
+          return;
+        }
+        if (waiter.permit == null) {
+          return;
+        }
+      }
+      release();
+    }
+
+    private void release() {
+      List<Waiter> granted = new ArrayList<>();
+      synchronized (this) {
+        inFlight--;
+        while (inFlight < limit.getLimit() && !waiters.isEmpty()) {
+          var waiter = waiters.poll();
+          waiter.expiry.dispose();
+          waiter.permit = new Permit(++inFlight);
+          granted.add(waiter);
+        }
+      }
+      granted.forEach(waiter -> waiter.sink.success(waiter.permit));
+    }
+
+    synchronized int inFlight() {
+      return inFlight;
+    }
+
+    synchronized int queued() {
+      return waiters.size();
+    }
+
+    private void rejected(String reason) {
+      meterRegistry
+          .counter("movies.client.limit.rejected", "client", client, "reason", reason)
+          .increment();
+    }
+
+    private ConcurrencyLimitExceededException limitExceeded() {
+      return new ConcurrencyLimitExceededException(
+          "Concurrency limit of " + limit.getLimit() + " reached for " + client);
+    }
+
+    @RequiredArgsConstructor
+    private class Waiter {
+      private final MonoSink<Permit> sink;
+      private boolean cancelled;
+      private Permit permit;
+      private Disposable expiry;
+    }
+
+    private class Permit {
+      private final long startedAt = System.nanoTime();
+      private final int inFlightAtStart;
+      private final AtomicBoolean released = new AtomicBoolean();
+
+      Permit(int inFlightAtStart) {
+        this.inFlightAtStart = inFlightAtStart;
+      }
+
+      void release(boolean dropped) {
+        if (released.compareAndSet(false, true)) {
+          limit.onSample(System.nanoTime() - startedAt, inFlightAtStart, dropped);
+          Limiter.this.release();
+        }
+      }
+
+      // a cancelled call says nothing about the backend, its slot is just handed on
+      void cancel() {
+        if (released.compareAndSet(false, true)) {
+          Limiter.this.release();
+        }
+      }
+    }
+  }
+}
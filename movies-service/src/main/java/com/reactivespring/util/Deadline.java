@@ -0,0 +1,32 @@
+package com.reactivespring.util;
+
+import java.time.Duration;
+
+// the point in time a caller stops waiting for its response, carried in the Reactor Context
+public final class Deadline {
+  // remaining budget in milliseconds, relative so it is not affected by clock skew between hosts
+  public static final String HEADER = "X-Request-Timeout";
+
+  private final long deadlineNanos;
+
+  private Deadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static Deadline after(Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+  }
+
+  // a missing deadline is unbounded and covers any other
+  public static boolean covers(Deadline deadline, Deadline other) {
+    return deadline == null || (other != null && deadline.deadlineNanos - other.deadlineNanos >= 0);
+  }
+
+  public boolean isExpired() {
+    return deadlineNanos - System.nanoTime() <= 0;
+  }
+}
@@ -0,0 +1,273 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.LoadBalancerProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+// spreads the calls to a downstream over its instances: of two instances picked at random the one
+// with the lower peak ewma latency times calls in flight gets the call. instances failing
+// consecutiveErrors calls in a row are ejected for a while. a retry goes through the filter again,
+// so it can land on another instance, unless the call is pinned
+@Component
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+@RequiredArgsConstructor
+@Slf4j
+public class LoadBalancer {
+  // an AtomicReference<URI> holding the instance a call must go to. an empty one is filled with
+  // the instance chosen as usual. for streams resuming after a sequence id, each instance numbers
+  // its events on its own. a pinned call whose instance has been ejected is answered with 410 Gone
+  // without being sent, and the pin is cleared so the caller starts over on another instance
+  public static final String PIN_ATTRIBUTE = LoadBalancer.class.getName() + ".pin";
+
+  private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+  private final LoadBalancerProperties balancerProperties;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Balancer> balancers = new ConcurrentHashMap<>();
+
+  // like the concurrency limiter, a 5xx counts as a failure of the instance but a 429 does not
+  @SuppressWarnings("unchecked")
+  public ExchangeFilterFunction filter(String downstream) {
+    var instances = balancerProperties.instances(downstream);
+    if (!balancerProperties.isEnabled() || instances.isEmpty()) {
+      return (request, next) -> next.exchange(request);
+    }
+    var balancer = balancers.computeIfAbsent(downstream, name -> newBalancer(name, instances));
+    return (request, next) -> {
+      var pin = (AtomicReference<URI>) request.attribute(PIN_ATTRIBUTE).orElse(null);
+      var pinned = pin == null ? null : pin.get();
+      Instance instance;
+      if (pinned == null) {
+        instance = balancer.choose();
+        if (pin != null) {
+          pin.set(instance.url);
+        }
+      } else {
+        instance = balancer.available(pinned);
+        if (instance == null) {
+          pin.set(null);
+          log.info("{} instance {} is no longer available to a pinned call", downstream, pinned);
+          return Mono.just(ClientResponse.create(HttpStatus.GONE).build());
+        }
+      }
+      var call = instance.start();
+      return next.exchange(instance.route(request))
+          .doOnSuccess(
+              response -> call.finish(response == null || response.rawStatusCode() >= 500))
+          .doOnError(ex -> call.finish(true))
+          .doOnCancel(call::cancel);
+    };
+  }
+
+  private Balancer newBalancer(String downstream, List<URI> urls) {
+    var balancer = new Balancer(downstream);
+    urls.forEach(url -> balancer.instances.add(new Instance(balancer, url)));
+    balancer.instances.forEach(
+        instance -> {
+          Gauge.builder("movies.client.balancer.inflight", instance, Instance::inFlight)
+              .tag("client", downstream)
+              .tag("instance", instance.name)
+              .register(meterRegistry);
+          Gauge.builder("movies.client.balancer.ejected", instance, i -> i.isEjected() ? 1 : 0)
+              .tag("client", downstream)
+              .tag("instance", instance.name)
+              .register(meterRegistry);
+        });
+    return balancer;
+  }
+
+  @RequiredArgsConstructor
+  private class Balancer {
+    private final String downstream;
+    private final List<Instance> instances = new ArrayList<>();
+
+    // power of two choices: the load of every instance is never compared, so a burst of calls
+    // doesn't all go to the one instance that looked best a moment ago
+    Instance choose() {
+      var available =
+          instances.stream().filter(instance -> !instance.isEjected()).collect(Collectors.toList());
+      if (available.isEmpty()) {
+        available = instances;
+      }
+      if (available.size() == 1) {
+        return available.get(0);
+      }
+      var random = ThreadLocalRandom.current();
+      var first = random.nextInt(available.size());
+      var second = random.nextInt(available.size() - 1);
+      if (second >= first) {
+        second++;
+      }
+      var a = available.get(first);
+      var b = available.get(second);
+      return a.cost() <= b.cost() ? a : b;
+    }
+
+    Instance available(URI url) {
+      return instances.stream()
+          .filter(instance -> instance.url.equals(url) && !instance.isEjected())
+          .findFirst()
+          .orElse(null);
+    }
+
+    // called under the balancer lock, so two instances failing at once can't both take the last
+    // ejection
+    boolean mayEject() {
+      var ejected = instances.stream().filter(Instance::isEjected).count();
+      return ejected + 1 < instances.size()
+          && (ejected + 1) * 100
+              <= (long) instances.size() * balancerProperties.getMaxEjectionPercent();
+    }
+  }
+
+  private class Instance {
+    private final Balancer balancer;
+    private final URI url;
+    private final String name;
+    private int inFlight;
+    private double latency;
+    private long lastSampleAt;
+    private int consecutiveErrors;
+    private int ejections;
+    private long ejectedUntil;
+
+    Instance(Balancer balancer, URI url) {
+      this.balancer = balancer;
+      this.url = url;
+      this.name = url.getAuthority();
+    }
+
+    ClientRequest route(ClientRequest request) {
+      var target =
+          UriComponentsBuilder.fromUri(request.url())
+              .scheme(url.getScheme())
+              .host(url.getHost())
+              .port(url.getPort())
+              .build(true)
+              .toUri();
+      return ClientRequest.from(request).url(target).build();
+    }
+
+    synchronized Call start() {
+      inFlight++;
+      return new Call(this);
+    }
+
+    // instances without samples yet only compare by calls in flight, so new ones are tried first
+    synchronized double cost() {
+      return Math.max(latency, 1) * (inFlight + 1);
+    }
+
+    synchronized int inFlight() {
+      return inFlight;
+    }
+
+    synchronized boolean isEjected() {
+      return ejectedUntil != 0 && System.nanoTime() - ejectedUntil < 0;
+    }
+
+    // peak ewma: a slower call is taken as is, faster ones only pull the average down over
+    // decayTime, so an instance that starts to struggle is avoided right away. a failure doubles
+    // it, an instance that fails fast must not look like the fastest one
+    void finish(long rttNanos, boolean failed) {
+      var eject = false;
+      synchronized (this) {
+        inFlight--;
+        var now = System.nanoTime();
+        if (failed) {
+          latency = Math.min(MAX_LATENCY, Math.max(latency, rttNanos) * 2);
+        } else if (rttNanos > latency) {
+          latency = rttNanos;
+        } else {
+          var decay =
+              Math.exp(
+                  -(double) (now - lastSampleAt) / balancerProperties.getDecayTime().toNanos());
+          latency = latency * decay + rttNanos * (1 - decay);
+        }
+        lastSampleAt = now;
+        if (!failed) {
+          consecutiveErrors = 0;
+          ejections = 0;
+          return;
+        }
+        if (++consecutiveErrors >= balancerProperties.getConsecutiveErrors() && !isEjected()) {
+          eject = true;
+        }
+      }
+      if (eject) {
+        eject();
+      }
+    }
+
+    synchronized void cancel() {
+      inFlight--;
+    }
+
+    private void eject() {
+      synchronized (balancer) {
+        if (!balancer.mayEject()) {
+          return;
+        }
+        synchronized (this) {
+          consecutiveErrors = 0;
+          ejections++;
+          var ejectionTime =
+              Math.min(
+                  balancerProperties.getEjectionTime().toNanos() * ejections,
+                  balancerProperties.getMaxEjectionTime().toNanos());
+          ejectedUntil = System.nanoTime() + ejectionTime;
+        }
+      }
+      meterRegistry
+          .counter(
+              "movies.client.balancer.ejections", "client", balancer.downstream, "instance", name)
+          .increment();
+      log.warn(
+          "ejected {} instance {} after {} consecutive errors",
+          balancer.downstream,
+          name,
+          balancerProperties.getConsecutiveErrors());
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class Call {
+    private final long startedAt = System.nanoTime();
+    private final Instance instance;
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    void finish(boolean failed) {
+      if (finished.compareAndSet(false, true)) {
+        instance.finish(System.nanoTime() - startedAt, failed);
+      }
+    }
+
+    // a cancelled call says nothing about the instance, it is only no longer in flight
+    void cancel() {
+      if (finished.compareAndSet(false, true)) {
+        instance.cancel();
+      }
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescer {
+  private final Map<String, Shared> inFlight = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  @Value("${restClient.coalescing.enabled:true}")
+  private boolean enabled;
+
+  // concurrent callers with the same key share one upstream call and all get its result or error,
+  // the key is dropped once that call terminates so nothing is ever served stale.
+  // the shared call runs with the deadline of the caller that started it, so a caller only joins
+  // a call whose deadline is at least as late as its own. one with a later deadline starts a new
+  // call instead, which the callers after it join
+  @SuppressWarnings("unchecked")
+  public <T> Mono<T> coalesce(String client, String key, Supplier<Mono<T>> call) {
+    if (!enabled) {
+      return call.get();
+    }
+    return Mono.deferContextual(
+        context -> {
+          meterRegistry.counter("movies.client.coalescing.requests", "client", client).increment();
+          var deadline = context.<Deadline>getOrEmpty(Deadline.class).orElse(null);
+          return (Mono<T>)
+              inFlight.compute(
+                      key,
+                      (k, current) -> {
+                        if (current != null && Deadline.covers(current.deadline, deadline)) {
+                          return current;
+                        }
+                        meterRegistry
+                            .counter("movies.client.coalescing.executions", "client", client)
+                            .increment();
+                        var shared = new Shared(deadline);
+                        shared.call =
+                            call.get()
+                                .contextWrite(
+                                    upstream ->
+                                        deadline == null
+                                            ? upstream.delete(Deadline.class)
+                                            : upstream.put(Deadline.class, deadline))
+                                .doFinally(signal -> inFlight.remove(k, shared))
+                                .share();
+                        return shared;
+                      })
+                  .call;
+        });
+  }
+
+  @PostConstruct
+  void registerMetrics() {
+    Gauge.builder("movies.client.coalescing.inflight", inFlight, Map::size)
+        .register(meterRegistry);
+  }
+
+  @RequiredArgsConstructor
+  private static class Shared {
+    private final Deadline deadline;
+    private Mono<?> call;
+  }
+}
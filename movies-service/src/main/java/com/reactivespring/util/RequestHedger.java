@@ -0,0 +1,105 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+public class RequestHedger {
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+  private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+  @Value("${restClient.hedging.enabled:false}")
+  private boolean enabled;
+
+  @Value("${restClient.hedging.percentile:0.95}")
+  private double percentile;
+
+  @Value("${restClient.hedging.minDelay:20ms}")
+  private Duration minDelay;
+
+  @Value("${restClient.hedging.defaultDelay:200ms}")
+  private Duration defaultDelay;
+
+  @Value("${restClient.hedging.budgetRatio:0.05}")
+  private double budgetRatio;
+
+  @Value("${restClient.hedging.budgetMaxTokens:5}")
+  private double budgetMaxTokens;
+
+  // sends a second identical call when the first one is slower than the observed percentile.
+  // the first value wins and the other call is cancelled. only the first call may end the hedge
+  // with an error or without a value: the hedge goes through the bulkhead, circuit breaker and
+  // limiter too and may be rejected right away, which must not cancel a first call about to succeed
+  public <T> Mono<T> hedge(String client, Supplier<Mono<T>> call) {
+    if (!enabled) {
+      return call.get();
+    }
+    return Mono.defer(
+        () -> {
+          var latency = latencies.computeIfAbsent(client, this::newLatencyTimer);
+          var budget =
+              budgets.computeIfAbsent(client, c -> new RetryBudget(budgetRatio, budgetMaxTokens));
+          budget.recordRequest();
+          var hedged =
+              Mono.delay(hedgeDelay(latency))
+                  .flatMap(
+                      tick -> {
+                        if (!budget.tryAcquire()) {
+                          count(client, "suppressed");
+                          return Mono.<T>never();
+                        }
+                        count(client, "sent");
+                        return timed(call.get(), latency)
+                            .doOnNext(value -> count(client, "won"))
+                            .switchIfEmpty(Mono.never())
+                            .onErrorResume(
+                                ex -> {
+                                  count(client, "failed");
+                                  return Mono.never();
+                                });
+                      });
+          return Mono.firstWithSignal(timed(call.get(), latency), hedged);
+        });
+  }
+
+  private Duration hedgeDelay(Timer latency) {
+    if (latency.count() == 0) {
+      return defaultDelay;
+    }
+    var percentileNanos = (long) latency.takeSnapshot().percentileValues()[0].value(TimeUnit.NANOSECONDS);
+    var delay = Duration.ofNanos(percentileNanos);
+    return delay.compareTo(minDelay) < 0 ? minDelay : delay;
+  }
+
+  private <T> Mono<T> timed(Mono<T> call, Timer latency) {
+    return Mono.defer(
+        () -> {
+          var start = System.nanoTime();
+          return call.doOnNext(
+              value -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+  }
+
+  private void count(String client, String result) {
+    meterRegistry.counter("movies.client.hedges", "client", client, "result", result).increment();
+  }
+
+  private Timer newLatencyTimer(String client) {
+    return Timer.builder("movies.client.hedging.latency")
+        .tag("client", client)
+        .publishPercentiles(percentile)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,31 @@
+package com.reactivespring.util;
+
+// token bucket: every request deposits a fraction of a token and every retry spends a whole one,
+// so retries stay below that fraction of the traffic plus a small burst of maxTokens
+public class RetryBudget {
+  private final double depositPerRequest;
+  private final double maxTokens;
+  private double tokens;
+
+  public RetryBudget(double depositPerRequest, double maxTokens) {
+    this.depositPerRequest = depositPerRequest;
+    this.maxTokens = maxTokens;
+    this.tokens = maxTokens;
+  }
+
+  public synchronized void recordRequest() {
+    tokens = Math.min(maxTokens, tokens + depositPerRequest);
+  }
+
+  public synchronized boolean tryAcquire() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  public synchronized double availableTokens() {
+    return tokens;
+  }
+}
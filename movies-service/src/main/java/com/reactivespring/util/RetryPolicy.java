@@ -0,0 +1,102 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryPolicy {
+  private final MeterRegistry meterRegistry;
+  private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+  @Value("${restClient.retry.maxAttempts:3}")
+  private int maxAttempts;
+
+  @Value("${restClient.retry.baseBackoff:100ms}")
+  private Duration baseBackoff;
+
+  @Value("${restClient.retry.maxBackoff:2s}")
+  private Duration maxBackoff;
+
+  @Value("${restClient.retry.budgetRatio:0.1}")
+  private double budgetRatio;
+
+  @Value("${restClient.retry.budgetMaxTokens:10}")
+  private double budgetMaxTokens;
+
+  public Retry retrySpec(String client) {
+    var budget = budgets.computeIfAbsent(client, this::newBudget);
+    return Retry.from(
+        retrySignals -> {
+          budget.recordRequest();
+          return retrySignals.concatMap(
+              retrySignal ->
+                  Mono.deferContextual(
+                      context -> nextRetry(client, budget, retrySignal, context)));
+        });
+  }
+
+  private Mono<Long> nextRetry(
+      String client, RetryBudget budget, Retry.RetrySignal retrySignal, ContextView context) {
+    var failure = retrySignal.failure();
+    if (!isRetryable(failure) || retrySignal.totalRetries() >= maxAttempts) {
+      return Mono.error(failure);
+    }
+    var backoff = fullJitterBackoff(retrySignal.totalRetries());
+    var pastDeadline =
+        context
+            .<Deadline>getOrEmpty(Deadline.class)
+            .map(deadline -> deadline.remaining().compareTo(backoff) <= 0)
+            .orElse(false);
+    if (pastDeadline) {
+      return suppressed(client, "deadline", failure);
+    }
+    if (!budget.tryAcquire()) {
+      return suppressed(client, "budget", failure);
+    }
+    meterRegistry.counter("movies.client.retries", "client", client, "result", "attempted").increment();
+    log.info("retrying {} call in {} ms : {}", client, backoff.toMillis(), failure.getMessage());
+    return Mono.delay(backoff);
+  }
+
+  private Mono<Long> suppressed(String client, String reason, Throwable failure) {
+    meterRegistry
+        .counter("movies.client.retries", "client", client, "result", "suppressed_" + reason)
+        .increment();
+    return Mono.error(failure);
+  }
+
+  private boolean isRetryable(Throwable failure) {
+    return failure instanceof MoviesInfoServerException
+        || failure instanceof ReviewsServerException;
+  }
+
+  // exponential backoff with full jitter, so retries of many callers don't line up in waves
+  private Duration fullJitterBackoff(long retriesSoFar) {
+    var ceiling = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << Math.min(retriesSoFar, 30));
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+  }
+
+  private RetryBudget newBudget(String client) {
+    var budget = new RetryBudget(budgetRatio, budgetMaxTokens);
+    Gauge.builder("movies.client.retry.budget", budget, RetryBudget::availableTokens)
+        .tag("client", client)
+        .register(meterRegistry);
+    return budget;
+  }
+}
@@ -1,19 +1,41 @@
 package com.reactivespring.controller;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.reactivespring.client.MovieInfoRestClient;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieResult;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.DeadlineExceededException;
+import com.reactivespring.util.Deadline;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
@@ -21,14 +43,25 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
+@AutoConfigureMetrics
 @AutoConfigureWireMock(port = 8084)
 @TestPropertySource(
     properties = {
       "restClient.moviesInfoUrl=http://localhost:8084/v1/movieinfos",
-      "restClient.reviewsInfoUrl=http://localhost:8084/v1/reviews"
+      "restClient.reviewsInfoUrl=http://localhost:8084/v1/reviews",
+      "movies.cache.enabled=false"
     })
 public class MoviesControllerIntgTest {
   @Autowired WebTestClient testClient;
+  @LocalServerPort int port;
+  @Autowired CircuitBreakerRegistry circuitBreakerRegistry;
+  @Autowired MeterRegistry meterRegistry;
+  @Autowired MovieInfoRestClient movieInfoRestClient;
+
+  @BeforeEach
+  void setUp() {
+    WireMock.reset();
+  }
 
   @Test
   void getMovieById() {
@@ -197,4 +230,505 @@ public class MoviesControllerIntgTest {
     // then
     WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
   }
+
+  @Test
+  void getMovieById_retry_metrics() {
+    // given
+    var movieId = "def";
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .willReturn(aResponse().withStatus(500).withBody("MovieInfo service unavailable")));
+    var errors =
+        meterRegistry.counter(
+            "movies.client.errors", "client", "moviesInfo", "exception", "MoviesInfoServerException");
+    var errorsBefore = errors.count();
+    // when
+    testClient.get().uri("/v1/movies/{id}", movieId).exchange().expectStatus().is5xxServerError();
+    // then
+    for (var attempt = 1; attempt <= 4; attempt++) {
+      var timer =
+          meterRegistry
+              .find("http.client.requests")
+              .tags(
+                  "client", "moviesInfo",
+                  "uri", "/v1/movieinfos/{id}",
+                  "outcome", "SERVER_ERROR",
+                  "attempt", String.valueOf(attempt))
+              .timer();
+      Assertions.assertNotNull(timer, "no timer for attempt " + attempt);
+    }
+    Assertions.assertEquals(errorsBefore + 1, errors.count());
+  }
+
+  @Test
+  void prometheus() {
+    // given
+    var movieId = "abc";
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    testClient.get().uri("/v1/movies/{id}", movieId).exchange().expectStatus().isOk();
+    // when
+    testClient
+        .get()
+        .uri("/actuator/prometheus?includedNames=http_client_requests_seconds_bucket")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(String.class)
+        .value(
+            body ->
+                Assertions.assertTrue(
+                    body.contains("http_client_requests_seconds_bucket")
+                        && body.contains("uri=\"/v1/reviews?movieInfoId={movieInfoId}\"")));
+  }
+
+  @Test
+  void getMovies() {
+    // given
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/abc"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")));
+    stubFor(get(urlEqualTo("/v1/movieinfos/def")).willReturn(aResponse().withStatus(404)));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies?ids={ids}", "def,abc")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBodyList(MovieResult.class)
+        .hasSize(2)
+        .consumeWith(
+            res -> {
+              var results = Objects.requireNonNull(res.getResponseBody());
+              Assertions.assertEquals("def", results.get(0).getMovieId());
+              Assertions.assertEquals(404, results.get(0).getStatus());
+              Assertions.assertEquals("abc", results.get(1).getMovieId());
+              Assertions.assertEquals(200, results.get(1).getStatus());
+              Assertions.assertEquals(2, results.get(1).getMovie().getReviewList().size());
+            });
+    // then
+  }
+
+  @Test
+  void streamMovies() {
+    // given
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/abc"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    // when
+    testClient
+        .post()
+        .uri("/v1/movies")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .bodyValue(List.of("abc", "abc"))
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBodyList(MovieResult.class)
+        .hasSize(2);
+    // then
+  }
+
+  @Test
+  void streamMovies_tooManyIds() {
+    // given
+    var movieIds = Collections.nCopies(201, "abc");
+    // when
+    testClient
+        .post()
+        .uri("/v1/movies")
+        .contentType(MediaType.APPLICATION_JSON)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .bodyValue(movieIds)
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+    // then
+    verify(0, getRequestedFor(urlPathMatching("/v1/.*")));
+  }
+
+  @Test
+  void getMovieById_moviesInfo_circuitOpen() {
+    // given
+    var movieId = "abc";
+    var circuitBreaker = circuitBreakerRegistry.circuitBreaker("moviesInfo");
+    circuitBreaker.transitionToForcedOpenState();
+    // when
+    try {
+      testClient
+          .get()
+          .uri("/v1/movies/{id}", movieId)
+          .exchange()
+          .expectStatus()
+          .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    } finally {
+      circuitBreaker.reset();
+    }
+    // then
+    WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+  }
+
+  @Test
+  void getMovieById_forwardsDeadline() {
+    // given
+    var movieId = "abc";
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}", movieId)
+        .header(Deadline.HEADER, "2000")
+        .exchange()
+        .expectStatus()
+        .isOk();
+    // then
+    WireMock.verify(
+        getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))
+            .withHeader(Deadline.HEADER, matching("[0-9]+")));
+    WireMock.verify(
+        getRequestedFor(urlPathEqualTo("/v1/reviews"))
+            .withHeader(Deadline.HEADER, matching("[0-9]+")));
+  }
+
+  @Test
+  void getMovieById_deadlineExceeded() {
+    // given
+    var movieId = "abc";
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")
+                    .withFixedDelay(1000)));
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}", movieId)
+        .header(Deadline.HEADER, "100")
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+    // then
+    WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+  }
+
+  @Test
+  void retrieveMovieInfo_slowBodyExceedsDeadline() {
+    // given
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/abc"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    // gzipped, the headers would be held back with the body
+                    .withHeader(HttpHeaders.CONTENT_ENCODING, "identity")
+                    .withBodyFile("movieinfo.json")
+                    .withChunkedDribbleDelay(20, 10000)));
+    // when
+    var movieInfo =
+        movieInfoRestClient
+            .retrieveMovieInfo("abc")
+            .contextWrite(
+                context -> context.put(Deadline.class, Deadline.after(Duration.ofSeconds(4))));
+    // then the headers come with the first chunk, within the deadline, the body does not
+    StepVerifier.create(movieInfo)
+        .expectError(DeadlineExceededException.class)
+        .verify(Duration.ofSeconds(6));
+  }
+
+  @Test
+  void getMovieById_reviewsOverBudget() {
+    // given
+    var movieId = "abc";
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")
+                    .withFixedDelay(3000)));
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectHeader()
+        .valueEquals(MoviesController.REVIEWS_OMITTED_HEADER, "true")
+        .expectBody(Movie.class)
+        .consumeWith(
+            exResult -> {
+              var movie = exResult.getResponseBody();
+              Assertions.assertTrue(Objects.requireNonNull(movie).isReviewsOmitted());
+              Assertions.assertEquals(0, movie.getReviewList().size());
+              Assertions.assertEquals("Batman Begins", movie.getMovieInfo().getName());
+            });
+    // then
+  }
+
+  @Test
+  void streamEnrichedMovies() {
+    // given
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/stream"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                    .withBody(
+                        "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n"
+                            + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}\n")));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    // when
+    var movies =
+        testClient
+            .get()
+            .uri("/v1/movies/stream/enriched")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(Movie.class)
+            .getResponseBody();
+    // then
+    StepVerifier.create(movies)
+        .assertNext(movie -> Assertions.assertEquals("Batman Begins", movie.getMovieInfo().getName()))
+        .assertNext(
+            movie -> {
+              Assertions.assertEquals("The Dark Knight", movie.getMovieInfo().getName());
+              Assertions.assertEquals(2, movie.getReviewList().size());
+            })
+        .thenCancel()
+        .verify();
+    WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+  }
+
+  @Test
+  void getMovieById_smile() throws Exception {
+    // given
+    var movieId = "abc";
+    var smileMapper = new ObjectMapper(new SmileFactory()).findAndRegisterModules();
+    var movieInfo =
+        new MovieInfo(
+            movieId,
+            "Batman Begins",
+            2005,
+            List.of("Christian Bale", "Michael Cane"),
+            LocalDate.parse("2005-06-15"));
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .withHeader(HttpHeaders.ACCEPT, containing("application/x-jackson-smile"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, "application/x-jackson-smile")
+                    .withBody(smileMapper.writeValueAsBytes(movieInfo))));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .withHeader(HttpHeaders.ACCEPT, containing("application/x-jackson-smile"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, "application/x-jackson-smile")
+                    .withBody(
+                        smileMapper.writeValueAsBytes(
+                            List.of(new Review("1", 1L, "Awesome Movie", 9.0))))));
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectHeader()
+        .contentType(MediaType.APPLICATION_JSON)
+        .expectBody(Movie.class)
+        .consumeWith(
+            exResult -> {
+              var movie = exResult.getResponseBody();
+              Assertions.assertEquals(1, Objects.requireNonNull(movie).getReviewList().size());
+              Assertions.assertEquals(movieInfo, movie.getMovieInfo());
+            });
+    // then
+  }
+
+  @Test
+  void getMovies_compressed() {
+    // given
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/abc"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("movieinfo.json")));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    var movieIds = String.join(",", Collections.nCopies(20, "abc"));
+    // when
+    // WebTestClient inflates transparently and drops the header, so read the raw response instead
+    var contentEncoding =
+        HttpClient.create()
+            .headers(headers -> headers.add(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .get()
+            .uri("http://localhost:" + port + "/v1/movies?ids=" + movieIds)
+            .responseSingle(
+                (response, body) ->
+                    body.then(
+                        Mono.justOrEmpty(
+                            response.responseHeaders().get(HttpHeaders.CONTENT_ENCODING))))
+            .block(Duration.ofSeconds(10));
+    // then
+    Assertions.assertEquals("gzip", contentEncoding);
+    WireMock.verify(
+        getRequestedFor(urlEqualTo("/v1/movieinfos/abc"))
+            .withHeader(HttpHeaders.ACCEPT_ENCODING, containing("gzip")));
+  }
+
+  @Test
+  void getMovieById_revalidated() {
+    // given
+    var movieId = "revalidated";
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withHeader(HttpHeaders.ETAG, "\"v1\"")
+                    .withBodyFile("movieinfo.json")));
+    stubFor(
+        get(urlEqualTo("/v1/movieinfos/" + movieId))
+            .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"v1\""))
+            .willReturn(aResponse().withStatus(304)));
+    stubFor(
+        get(urlPathEqualTo("/v1/reviews"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBodyFile("reviews.json")));
+    // when
+    for (var i = 0; i < 2; i++) {
+      testClient
+          .get()
+          .uri("/v1/movies/{id}", movieId)
+          .exchange()
+          .expectStatus()
+          .isOk()
+          .expectBody(Movie.class)
+          .consumeWith(
+              exResult ->
+                  Assertions.assertEquals(
+                      "Batman Begins",
+                      Objects.requireNonNull(exResult.getResponseBody())
+                          .getMovieInfo()
+                          .getName()));
+    }
+    // then
+    WireMock.verify(
+        1,
+        getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))
+            .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"v1\"")));
+    Assertions.assertEquals(
+        1, meterRegistry.counter("movies.client.conditional", "result", "not_modified").count());
+  }
+
+  @Test
+  void getMovieById_fields() {
+    // given
+    var movieId = "projected";
+    stubFor(
+        get(urlPathEqualTo("/v1/movieinfos/" + movieId))
+            .withQueryParam("fields", equalTo("name,year"))
+            .willReturn(
+                aResponse()
+                    .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .withBody(
+                        "{\"movieInfoId\":\"projected\",\"name\":\"Batman Begins\",\"year\":2005}")));
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}?fields=year,name", movieId)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.movieInfo.name")
+        .isEqualTo("Batman Begins")
+        .jsonPath("$.movieInfo.year")
+        .isEqualTo(2005)
+        .jsonPath("$.movieInfo.cast")
+        .doesNotExist()
+        .jsonPath("$.reviewList")
+        .doesNotExist();
+    // then
+    WireMock.verify(0, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+  }
+
+  @Test
+  void getMovieById_unknownField() {
+    // given
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}?fields=name,rating", "abc")
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+    // then
+    WireMock.verify(0, getRequestedFor(urlPathMatching("/v1/movieinfos.*")));
+  }
 }
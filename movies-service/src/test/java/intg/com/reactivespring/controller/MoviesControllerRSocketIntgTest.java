@@ -0,0 +1,167 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@TestPropertySource(properties = {"restClient.transport=rsocket", "movies.cache.enabled=false"})
+public class MoviesControllerRSocketIntgTest {
+  // both backends are served by the same stub
+  static final CloseableChannel backend = startBackend();
+
+  @Autowired WebTestClient testClient;
+
+  static CloseableChannel startBackend() {
+    var cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    var handler = new RSocketMessageHandler();
+    handler.setRSocketStrategies(
+        RSocketStrategies.builder()
+            .encoders(
+                encoders ->
+                    encoders.add(new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .decoders(
+                decoders ->
+                    decoders.add(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .build());
+    handler.setHandlers(List.of(new StubBackend()));
+    handler.afterPropertiesSet();
+    return RSocketServer.create(handler.responder())
+        .bind(TcpServerTransport.create("localhost", 0))
+        .block();
+  }
+
+  @DynamicPropertySource
+  static void backendUrls(DynamicPropertyRegistry registry) {
+    var url = "tcp://localhost:" + backend.address().getPort();
+    registry.add("restClient.rsocket.moviesInfoUrl", () -> url);
+    registry.add("restClient.rsocket.reviewsUrl", () -> url);
+  }
+
+  @AfterAll
+  static void stopBackend() {
+    backend.dispose();
+  }
+
+  @Test
+  void getMovieById() {
+    // given
+    var movieId = "abc";
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(Movie.class)
+        .consumeWith(
+            exResult -> {
+              var movie = exResult.getResponseBody();
+              Assertions.assertEquals(2, Objects.requireNonNull(movie).getReviewList().size());
+              Assertions.assertEquals("Batman Begins", movie.getMovieInfo().getName());
+            });
+    // then
+  }
+
+  @Test
+  void getMovieById_moviesInfo_notFound() {
+    // given
+    var movieId = "def";
+    // when
+    testClient
+        .get()
+        .uri("/v1/movies/{id}", movieId)
+        .exchange()
+        .expectStatus()
+        .isNotFound();
+    // then
+  }
+
+  @Test
+  void streamMovieInfos() {
+    // given
+    // when
+    var movieInfos =
+        testClient
+            .get()
+            .uri("/v1/movies/stream")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(MovieInfo.class)
+            .getResponseBody();
+    // then
+    StepVerifier.create(movieInfos)
+        .expectNextMatches(movieInfo -> movieInfo.getSequenceId() == 1L)
+        .thenCancel()
+        .verify();
+  }
+
+  static class StubBackend {
+    static final MovieInfo MOVIE_INFO =
+        new MovieInfo(
+            "abc",
+            "Batman Begins",
+            2005,
+            List.of("Christian Bale", "Michael Cane"),
+            LocalDate.parse("2005-06-15"));
+
+    @MessageMapping("movieinfos.{id}")
+    public Mono<MovieInfo> getMovieInfoById(@DestinationVariable String id) {
+      return id.equals("abc") ? Mono.just(MOVIE_INFO) : Mono.empty();
+    }
+
+    @MessageMapping("movieinfos.stream")
+    public Flux<MovieInfo> getMovieInfoStream() {
+      var event =
+          new MovieInfo(
+              "abc",
+              "Batman Begins",
+              2005,
+              List.of("Christian Bale", "Michael Cane"),
+              LocalDate.parse("2005-06-15"),
+              1L,
+              null);
+      return Flux.just(event).concatWith(Flux.never());
+    }
+
+    @MessageMapping("reviews.{movieInfoId}")
+    public Flux<Review> getReviews(@DestinationVariable String movieInfoId) {
+      return Flux.just(
+          new Review("1", 1L, "Awesome Movie", 9.0), new Review("2", 1L, "Excellent Movie", 8.0));
+    }
+  }
+}
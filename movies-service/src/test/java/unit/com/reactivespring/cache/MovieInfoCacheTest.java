@@ -0,0 +1,67 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoCacheTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AtomicInteger loads = new AtomicInteger();
+
+  MovieInfoCache movieInfoCache(Duration ttl) {
+    var movieInfoCache = new MovieInfoCache(meterRegistry);
+    ReflectionTestUtils.setField(movieInfoCache, "enabled", true);
+    ReflectionTestUtils.setField(movieInfoCache, "ttl", ttl);
+    ReflectionTestUtils.setField(movieInfoCache, "staleWhileRevalidate", Duration.ofHours(1));
+    ReflectionTestUtils.setField(movieInfoCache, "maximumSize", 100L);
+    ReflectionTestUtils.setField(movieInfoCache, "maximumBytes", DataSize.ofBytes(0));
+    movieInfoCache.buildCache();
+    return movieInfoCache;
+  }
+
+  Mono<MovieInfo> load(String movieId) {
+    return Mono.fromSupplier(
+        () -> new MovieInfo(movieId, "Batman Begins " + loads.incrementAndGet(), 2005, List.of(), null));
+  }
+
+  @Test
+  void get_freshEntryIsServedFromCache() {
+    // given
+    var movieInfoCache = movieInfoCache(Duration.ofMinutes(5));
+    // when
+    StepVerifier.create(movieInfoCache.get("abc", this::load))
+        .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins 1"))
+        .verifyComplete();
+    // then
+    StepVerifier.create(movieInfoCache.get("abc", this::load))
+        .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins 1"))
+        .verifyComplete();
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void get_staleEntryIsServedWhileRefreshing() {
+    // given
+    var movieInfoCache = movieInfoCache(Duration.ZERO);
+    StepVerifier.create(movieInfoCache.get("abc", this::load)).expectNextCount(1).verifyComplete();
+    // when
+    // then
+    StepVerifier.create(movieInfoCache.get("abc", this::load))
+        .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins 1"))
+        .verifyComplete();
+    StepVerifier.create(movieInfoCache.get("abc", this::load))
+        .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins 2"))
+        .verifyComplete();
+    assertEquals(2, meterRegistry.counter("movies.cache.stale", "cache", "movieInfo").count());
+  }
+}
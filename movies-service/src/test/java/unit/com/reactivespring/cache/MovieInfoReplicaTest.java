@@ -0,0 +1,76 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MovieInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieInfoReplicaTest {
+  MovieInfoRestClient moviesClient = mock(MovieInfoRestClient.class);
+  MovieInfoReplica movieInfoReplica = new MovieInfoReplica(moviesClient, new SimpleMeterRegistry());
+  Sinks.Many<MovieInfo> stream = Sinks.many().multicast().onBackpressureBuffer();
+
+  MovieInfo movieInfo(String movieId, String name) {
+    return new MovieInfo(movieId, name, 2005, List.of("Christian Bale"), null);
+  }
+
+  @AfterEach
+  void tearDown() {
+    movieInfoReplica.stop();
+  }
+
+  @Test
+  void lookup_servesBootstrappedAndStreamedMovieInfos() {
+    // given
+    ReflectionTestUtils.setField(movieInfoReplica, "enabled", true);
+    ReflectionTestUtils.setField(movieInfoReplica, "pageSize", 2);
+    ReflectionTestUtils.setField(movieInfoReplica, "reconnectBackoff", Duration.ofSeconds(1));
+    ReflectionTestUtils.setField(movieInfoReplica, "maxReconnectBackoff", Duration.ofSeconds(1));
+    when(moviesClient.retrieveMovieInfoStream()).thenReturn(stream.asFlux());
+    when(moviesClient.retrieveMovieInfos(0, 2))
+        .thenReturn(Flux.just(movieInfo("1", "Batman Begins"), movieInfo("2", "The Dark Knight")));
+    when(moviesClient.retrieveMovieInfos(1, 2)).thenReturn(Flux.just(movieInfo("3", "Dark Knight Rises")));
+    // when
+    movieInfoReplica.start();
+    stream.tryEmitNext(movieInfo("1", "Batman Begins Updated"));
+    // then
+    StepVerifier.create(movieInfoReplica.lookup("3"))
+        .expectNextMatches(movieInfo -> movieInfo.getName().equals("Dark Knight Rises"))
+        .verifyComplete();
+    StepVerifier.create(movieInfoReplica.lookup("1"))
+        .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins Updated"))
+        .verifyComplete();
+    StepVerifier.create(movieInfoReplica.lookup("4")).verifyComplete();
+  }
+
+  @Test
+  void lookup_missesADeletedMovieInfo() {
+    // given
+    ReflectionTestUtils.setField(movieInfoReplica, "enabled", true);
+    ReflectionTestUtils.setField(movieInfoReplica, "pageSize", 2);
+    ReflectionTestUtils.setField(movieInfoReplica, "reconnectBackoff", Duration.ofSeconds(1));
+    ReflectionTestUtils.setField(movieInfoReplica, "maxReconnectBackoff", Duration.ofSeconds(1));
+    when(moviesClient.retrieveMovieInfoStream()).thenReturn(stream.asFlux());
+    when(moviesClient.retrieveMovieInfos(0, 2)).thenReturn(Flux.just(movieInfo("1", "Batman Begins")));
+    movieInfoReplica.start();
+    StepVerifier.create(movieInfoReplica.lookup("1")).expectNextCount(1).verifyComplete();
+    // when
+    var deleted = new MovieInfo();
+    deleted.setMovieInfoId("1");
+    deleted.setDeleted(true);
+    stream.tryEmitNext(deleted);
+    // then
+    StepVerifier.create(movieInfoReplica.lookup("1")).verifyComplete();
+  }
+}
@@ -0,0 +1,161 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MoviesInfoClientException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoStreamHubTest {
+  MovieInfoRestClient moviesClient = mock(MovieInfoRestClient.class);
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  MovieInfoStreamHub movieInfoStreamHub = new MovieInfoStreamHub(moviesClient, meterRegistry);
+  Sinks.Many<MovieInfo> stream = Sinks.many().multicast().directBestEffort();
+  AtomicInteger connections = new AtomicInteger();
+
+  MovieInfo movieInfo(String movieId) {
+    return new MovieInfo(movieId, "Batman Begins", 2005, List.of("Christian Bale"), null);
+  }
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(movieInfoStreamHub, "subscriberBufferSize", 2);
+    ReflectionTestUtils.setField(movieInfoStreamHub, "reconnectBackoff", Duration.ofMillis(10));
+    ReflectionTestUtils.setField(movieInfoStreamHub, "maxReconnectBackoff", Duration.ofMillis(10));
+    ReflectionTestUtils.setField(movieInfoStreamHub, "gracePeriod", Duration.ZERO);
+    when(moviesClient.retrieveMovieInfoStream(any(), any()))
+        .thenReturn(stream.asFlux().doOnSubscribe(s -> connections.incrementAndGet()));
+    movieInfoStreamHub.connect();
+  }
+
+  @Test
+  void subscribe_sharesOneUpstreamConnection() {
+    // given
+    var first = movieInfoStreamHub.subscribe();
+    var second = movieInfoStreamHub.subscribe();
+    // when
+    StepVerifier.create(Flux.merge(first, second).take(2))
+        .then(() -> stream.tryEmitNext(movieInfo("1")))
+        .expectNextCount(2)
+        .verifyComplete();
+    // then
+    assertEquals(1, connections.get());
+  }
+
+  @Test
+  void subscribe_evictsSlowSubscriber() {
+    // given
+    var slow = movieInfoStreamHub.subscribe();
+    var fast = movieInfoStreamHub.subscribe();
+    // when
+    StepVerifier.create(slow, 0)
+        .then(
+            () ->
+                StepVerifier.create(fast.take(3))
+                    .then(
+                        () -> {
+                          stream.tryEmitNext(movieInfo("1"));
+                          stream.tryEmitNext(movieInfo("2"));
+                          stream.tryEmitNext(movieInfo("3"));
+                        })
+                    .expectNextCount(3)
+                    .verifyComplete())
+        .thenRequest(Long.MAX_VALUE)
+        .expectNextCount(2)
+        .expectErrorMatches(Exceptions::isOverflow)
+        .verify(Duration.ofSeconds(5));
+    // then
+    assertEquals(1, meterRegistry.counter("movies.stream.hub.evictions").count());
+  }
+
+  @Test
+  void subscribe_reconnectsAfterUpstreamError() {
+    // given
+    when(moviesClient.retrieveMovieInfoStream(any(), any()))
+        .thenReturn(
+            Flux.<MovieInfo>error(new RuntimeException("connection reset"))
+                .doOnSubscribe(s -> connections.incrementAndGet()))
+        .thenReturn(
+            Flux.just(movieInfo("1")).concatWith(Flux.never())
+                .doOnSubscribe(s -> connections.incrementAndGet()));
+    var movieInfos = movieInfoStreamHub.subscribe();
+    // when
+    StepVerifier.create(movieInfos)
+        .expectNextMatches(movieInfo -> movieInfo.getMovieInfoId().equals("1"))
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+    // then
+    assertEquals(2, connections.get());
+    assertEquals(1, meterRegistry.counter("movies.stream.hub.reconnects").count());
+  }
+
+  @Test
+  void subscribe_resumesAfterLastSeenEvent() {
+    // given
+    var seen = movieInfo("1");
+    seen.setSequenceId(41L);
+    when(moviesClient.retrieveMovieInfoStream(any(), any()))
+        .thenReturn(Flux.just(seen).concatWith(Flux.error(new RuntimeException("connection reset"))))
+        .thenReturn(Flux.just(movieInfo("2")).concatWith(Flux.never()));
+    // when
+    StepVerifier.create(movieInfoStreamHub.subscribe())
+        .expectNextCount(2)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+    // then
+    verify(moviesClient).retrieveMovieInfoStream(eq(41L), any());
+  }
+
+  @Test
+  void subscribe_startsOverWhenTheInstanceCanNotResume() {
+    // given
+    var seen = movieInfo("1");
+    seen.setSequenceId(41L);
+    var instances = new ArrayList<URI>();
+    when(moviesClient.retrieveMovieInfoStream(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              AtomicReference<URI> instance = invocation.getArgument(1);
+              instances.add(instance.get());
+              instance.set(URI.create("http://localhost:9001"));
+              return Flux.just(seen)
+                  .concatWith(
+                      Flux.error(new MoviesInfoClientException("gone", HttpStatus.GONE.value())));
+            })
+        .thenAnswer(
+            invocation -> {
+              AtomicReference<URI> instance = invocation.getArgument(1);
+              instances.add(instance.get());
+              return Flux.just(movieInfo("2")).concatWith(Flux.never());
+            });
+    // when
+    StepVerifier.create(movieInfoStreamHub.subscribe())
+        .expectNextCount(2)
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+    // then
+    // the instance that answered 410 is not asked again, the balancer picks one afresh
+    assertEquals(Arrays.asList(null, null), instances);
+  }
+}
@@ -0,0 +1,151 @@
+package com.reactivespring.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.domain.MovieInfo;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// rough comparison of request-response latency over http and rsocket against local servers, run
+// with -Dtransport.benchmark.requests=N for steadier numbers
+@Slf4j
+class TransportBenchmarkTest {
+  static final int REQUESTS = Integer.getInteger("transport.benchmark.requests", 200);
+  static final int CONCURRENCY = 16;
+
+  ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+  ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+
+  DisposableServer httpServer;
+  CloseableChannel rsocketServer;
+  WebClient webClient;
+  RSocketRequester requester;
+
+  @BeforeEach
+  void setUp() {
+    httpServer =
+        HttpServer.create()
+            .host("localhost")
+            .port(0)
+            .route(
+                routes ->
+                    routes.get(
+                        "/v1/movieinfos/{id}",
+                        (request, response) ->
+                            response
+                                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                .sendByteArray(Mono.fromCallable(() -> json(request.param("id"))))))
+            .bindNow();
+    var strategies =
+        RSocketStrategies.builder()
+            .encoders(
+                encoders ->
+                    encoders.add(new Jackson2CborEncoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .decoders(
+                decoders ->
+                    decoders.add(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR)))
+            .build();
+    var handler = new RSocketMessageHandler();
+    handler.setRSocketStrategies(strategies);
+    handler.setHandlers(List.of(new MovieInfoResponder()));
+    handler.afterPropertiesSet();
+    rsocketServer =
+        RSocketServer.create(handler.responder())
+            .bind(TcpServerTransport.create("localhost", 0))
+            .block();
+    webClient = WebClient.create("http://localhost:" + httpServer.port());
+    requester =
+        RSocketRequester.builder()
+            .rsocketStrategies(strategies)
+            .dataMimeType(MediaType.APPLICATION_CBOR)
+            .tcp("localhost", rsocketServer.address().getPort());
+  }
+
+  @AfterEach
+  void tearDown() {
+    requester.dispose();
+    rsocketServer.dispose();
+    httpServer.disposeNow();
+  }
+
+  @Test
+  void movieInfoById() {
+    Function<String, Mono<MovieInfo>> http =
+        id ->
+            webClient.get().uri("/v1/movieinfos/{id}", id).retrieve().bodyToMono(MovieInfo.class);
+    Function<String, Mono<MovieInfo>> rsocket =
+        id -> requester.route("movieinfos.{id}", id).retrieveMono(MovieInfo.class);
+
+    assertEquals(movieInfo("abc"), http.apply("abc").block());
+    assertEquals(movieInfo("abc"), rsocket.apply("abc").block());
+    var httpNanos = requestNanos(http);
+    var rsocketNanos = requestNanos(rsocket);
+    log.info(
+        "movieInfo x{} concurrency {} : http {} us/request, rsocket {} us/request",
+        REQUESTS,
+        CONCURRENCY,
+        httpNanos / 1000,
+        rsocketNanos / 1000);
+  }
+
+  private long requestNanos(Function<String, Mono<MovieInfo>> request) {
+    run(request);
+    var start = System.nanoTime();
+    run(request);
+    return (System.nanoTime() - start) / REQUESTS;
+  }
+
+  private void run(Function<String, Mono<MovieInfo>> request) {
+    var count =
+        Flux.range(0, REQUESTS)
+            .flatMap(i -> request.apply(String.valueOf(i)), CONCURRENCY)
+            .count()
+            .block();
+    assertEquals(REQUESTS, count);
+  }
+
+  private byte[] json(String id) throws Exception {
+    return jsonMapper.writeValueAsBytes(movieInfo(id));
+  }
+
+  static MovieInfo movieInfo(String id) {
+    return new MovieInfo(
+        id,
+        "Batman Begins",
+        2005,
+        List.of("Christian Bale", "Michael Cane", "Liam Neeson"),
+        LocalDate.parse("2005-06-15"));
+  }
+
+  static class MovieInfoResponder {
+    @MessageMapping("movieinfos.{id}")
+    public Mono<MovieInfo> getMovieInfoById(@DestinationVariable String id) {
+      return Mono.just(movieInfo(id));
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ClientCodecConfigurer;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.EncoderHttpMessageWriter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// rough comparison of payload size and decode time with the codecs the WebClients use, smile as
+// set up by CodecConfig. run with -Dcodec.benchmark.iterations=N for steadier numbers
+@Slf4j
+class CodecBenchmarkTest {
+  static final int ITERATIONS = Integer.getInteger("codec.benchmark.iterations", 50);
+  static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+  ClientCodecConfigurer codecs = codecs();
+
+  List<MovieInfo> movieInfos =
+      IntStream.range(0, 1000)
+          .mapToObj(
+              i ->
+                  new MovieInfo(
+                      String.valueOf(i),
+                      "Batman Begins " + i,
+                      2005,
+                      List.of("Christian Bale", "Michael Cane", "Liam Neeson"),
+                      LocalDate.parse("2005-06-15")))
+          .collect(Collectors.toList());
+
+  List<Review> reviews =
+      IntStream.range(0, 1000)
+          .mapToObj(i -> new Review(String.valueOf(i), 1L, "Awesome Movie " + i, 9.0))
+          .collect(Collectors.toList());
+
+  static ClientCodecConfigurer codecs() {
+    var configurer = ClientCodecConfigurer.create();
+    new CodecConfig().smileCodecCustomizer(List.of()).customize(configurer);
+    return configurer;
+  }
+
+  @Test
+  void movieInfos() {
+    compare("movieInfo", movieInfos, MovieInfo.class);
+  }
+
+  @Test
+  void reviews() {
+    compare("review", reviews, Review.class);
+  }
+
+  private <T> void compare(String name, List<T> values, Class<T> elementType) {
+    var type = ResolvableType.forClassWithGenerics(List.class, elementType);
+    var json = encode(values, type, MediaType.APPLICATION_JSON);
+    var smile = encode(values, type, SMILE);
+    assertEquals(values, decode(decoder(type, SMILE), smile, type, SMILE));
+    var jsonNanos = decodeNanos(json, type, MediaType.APPLICATION_JSON);
+    var smileNanos = decodeNanos(smile, type, SMILE);
+    log.info(
+        "{} x{} : json {} bytes {} us/decode, smile {} bytes {} us/decode",
+        name,
+        values.size(),
+        json.length,
+        jsonNanos / 1000,
+        smile.length,
+        smileNanos / 1000);
+    assertTrue(smile.length < json.length);
+  }
+
+  @SuppressWarnings("unchecked")
+  private byte[] encode(Object value, ResolvableType type, MediaType mediaType) {
+    var encoder =
+        (Encoder<Object>)
+            codecs.getWriters().stream()
+                .filter(writer -> writer instanceof EncoderHttpMessageWriter)
+                .map(writer -> ((EncoderHttpMessageWriter<?>) writer).getEncoder())
+                .filter(candidate -> candidate.canEncode(type, mediaType))
+                .findFirst()
+                .orElseThrow();
+    var buffer =
+        encoder.encodeValue(
+            value, DefaultDataBufferFactory.sharedInstance, type, mediaType, Map.of());
+    var bytes = new byte[buffer.readableByteCount()];
+    buffer.read(bytes);
+    DataBufferUtils.release(buffer);
+    return bytes;
+  }
+
+  private Decoder<?> decoder(ResolvableType type, MediaType mediaType) {
+    return codecs.getReaders().stream()
+        .filter(reader -> reader instanceof DecoderHttpMessageReader)
+        .map(reader -> ((DecoderHttpMessageReader<?>) reader).getDecoder())
+        .filter(candidate -> candidate.canDecode(type, mediaType))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  // the decoder releases the buffer, so each call wraps the bytes again
+  private Object decode(
+      Decoder<?> decoder, byte[] body, ResolvableType type, MediaType mediaType) {
+    return decoder.decode(
+        DefaultDataBufferFactory.sharedInstance.wrap(body), type, mediaType, Map.of());
+  }
+
+  private long decodeNanos(byte[] body, ResolvableType type, MediaType mediaType) {
+    var decoder = decoder(type, mediaType);
+    for (var i = 0; i < ITERATIONS; i++) {
+      decode(decoder, body, type, mediaType);
+    }
+    var start = System.nanoTime();
+    for (var i = 0; i < ITERATIONS; i++) {
+      decode(decoder, body, type, mediaType);
+    }
+    return (System.nanoTime() - start) / ITERATIONS;
+  }
+}
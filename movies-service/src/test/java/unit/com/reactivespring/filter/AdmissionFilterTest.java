@@ -0,0 +1,168 @@
+package com.reactivespring.filter;
+
+import com.reactivespring.config.AdmissionProperties;
+import com.reactivespring.config.AdmissionProperties.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdmissionFilterTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  AdmissionProperties admissionProperties = new AdmissionProperties();
+  AdmissionFilter admissionFilter = new AdmissionFilter(admissionProperties, meterRegistry);
+  List<String> admitted = new ArrayList<>();
+  Map<String, Sinks.Empty<Void>> responses = new LinkedHashMap<>();
+
+  WebFilterChain chain =
+      exchange -> {
+        var path = exchange.getRequest().getPath().value();
+        var response = Sinks.<Void>empty();
+        admitted.add(path);
+        responses.put(path, response);
+        return response.asMono();
+      };
+
+  @BeforeEach
+  void setUp() {
+    admissionProperties.setMaxConcurrency(2);
+    admissionProperties.setMaxQueueTime(Duration.ofSeconds(5));
+    var routes = new LinkedHashMap<String, Priority>();
+    routes.put("/actuator/**", Priority.EXEMPT);
+    routes.put("/v1/movies/stream/**", Priority.LOW);
+    routes.put("/v1/movies/{id}", Priority.HIGH);
+    admissionProperties.setRoutes(routes);
+    admissionFilter.init();
+  }
+
+  MockServerWebExchange exchange(String path) {
+    return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+  }
+
+  @Test
+  void filter_streamsOnlyGetTheirShare() {
+    // given
+    admissionProperties.setMaxQueueTime(Duration.ofMillis(50));
+    var rejected = exchange("/v1/movies/stream/enriched");
+    admissionFilter.filter(exchange("/v1/movies/stream"), chain).subscribe();
+    // when
+    var stream = admissionFilter.filter(rejected, chain);
+    admissionFilter.filter(exchange("/v1/movies/abc"), chain).subscribe();
+    // then
+    StepVerifier.create(stream).verifyComplete();
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+    assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    assertEquals(List.of("/v1/movies/stream", "/v1/movies/abc"), admitted);
+  }
+
+  @Test
+  void filter_openStreamsDontTakeRequestSlots() {
+    // given
+    admissionProperties.setMaxConcurrency(256);
+    admissionProperties.setMaxStreams(300);
+    admissionProperties.getRoutes().put("/v1/movies/stream/**", Priority.STREAM);
+    admissionFilter.init();
+    for (var i = 0; i < 300; i++) {
+      admissionFilter.filter(exchange("/v1/movies/stream"), chain).subscribe();
+    }
+    var rejected = exchange("/v1/movies/stream");
+    // when
+    var stream = admissionFilter.filter(rejected, chain);
+    admissionFilter.filter(exchange("/v1/movies/abc"), chain).subscribe();
+    // then
+    StepVerifier.create(stream).verifyComplete();
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+    assertEquals(301, admitted.size());
+    assertEquals(300, meterRegistry.get("movies.admission.streams").gauge().value());
+    assertEquals(1, meterRegistry.get("movies.admission.inflight").gauge().value());
+    assertEquals(
+        1,
+        meterRegistry
+            .counter(
+                "movies.admission.rejected",
+                "route",
+                "/v1/movies/stream/**",
+                "reason",
+                "stream_limit")
+            .count());
+    responses.get("/v1/movies/stream").tryEmitEmpty();
+    assertEquals(299, meterRegistry.get("movies.admission.streams").gauge().value());
+  }
+
+  @Test
+  void filter_highPriorityLeavesTheQueueFirst() {
+    // given
+    admissionProperties.setMaxConcurrency(1);
+    admissionFilter.filter(exchange("/v1/movies/abc"), chain).subscribe();
+    admissionFilter.filter(exchange("/v1/movies"), chain).subscribe();
+    admissionFilter.filter(exchange("/v1/movies/def"), chain).subscribe();
+    assertEquals(2, meterRegistry.get("movies.admission.queue").gauge().value());
+    // when
+    responses.get("/v1/movies/abc").tryEmitEmpty();
+    responses.get("/v1/movies/def").tryEmitEmpty();
+    // then
+    assertEquals(List.of("/v1/movies/abc", "/v1/movies/def", "/v1/movies"), admitted);
+    assertEquals(1, meterRegistry.get("movies.admission.inflight").gauge().value());
+  }
+
+  @Test
+  void filter_rejectsWhenTheQueueIsFull() {
+    // given
+    admissionProperties.setMaxConcurrency(1);
+    admissionProperties.setMaxQueueSize(0);
+    var rejected = exchange("/v1/movies/def");
+    admissionFilter.filter(exchange("/v1/movies/abc"), chain).subscribe();
+    // when
+    var movie = admissionFilter.filter(rejected, chain);
+    // then
+    StepVerifier.create(movie).verifyComplete();
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+    assertEquals(
+        1,
+        meterRegistry
+            .counter("movies.admission.rejected", "route", "/v1/movies/{id}", "reason", "queue_full")
+            .count());
+  }
+
+  @Test
+  void filter_exemptRoutesBypassAdmission() {
+    // given
+    admissionProperties.setMaxConcurrency(1);
+    admissionProperties.setMaxQueueSize(0);
+    admissionFilter.filter(exchange("/v1/movies/abc"), chain).subscribe();
+    var health = exchange("/actuator/health");
+    // when
+    admissionFilter.filter(health, chain).subscribe();
+    // then
+    assertNull(health.getResponse().getStatusCode());
+    assertEquals(List.of("/v1/movies/abc", "/actuator/health"), admitted);
+  }
+
+  @Test
+  void filter_cancelledRequestGivesBackItsSlot() {
+    // given
+    admissionProperties.setMaxConcurrency(1);
+    var first = admissionFilter.filter(exchange("/v1/movies/abc"), chain).subscribe();
+    admissionFilter.filter(exchange("/v1/movies/def"), chain).subscribe();
+    // when
+    first.dispose();
+    // then
+    assertEquals(List.of("/v1/movies/abc", "/v1/movies/def"), admitted);
+    assertEquals(0, meterRegistry.get("movies.admission.queue").gauge().value());
+  }
+}
@@ -0,0 +1,254 @@
+package com.reactivespring.service;
+
+import com.reactivespring.cache.MovieInfoReplica;
+import com.reactivespring.client.MovieInfoRestClient;
+import com.reactivespring.client.MovieInfoStreamHub;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MoviesServiceTest {
+  @Mock MovieInfoRestClient moviesClient;
+  @Mock ReviewsRestClient reviewClient;
+  @Mock MovieInfoReplica movieInfoReplica;
+  @Mock MovieInfoStreamHub movieInfoStreamHub;
+  @Spy MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  @InjectMocks MoviesService moviesService;
+
+  MovieInfo movieInfo =
+      new MovieInfo(
+          "abc",
+          "Batman Begins",
+          2005,
+          List.of("Christian Bale", "Michael Cane"),
+          LocalDate.parse("2005-06-15"));
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(moviesService, "aggregationMode", AggregationMode.PARALLEL);
+    ReflectionTestUtils.setField(moviesService, "reviewsDegradable", true);
+    ReflectionTestUtils.setField(moviesService, "streamConcurrency", 2);
+    ReflectionTestUtils.setField(moviesService, "streamBufferSize", 4);
+    ReflectionTestUtils.setField(moviesService, "reviewsLatencyBudget", Duration.ofMillis(200));
+    lenient().when(movieInfoReplica.lookup("abc")).thenReturn(Mono.empty());
+  }
+
+  @Test
+  void getMovieById_parallel() {
+    // given
+    var reviewsSubscribed = new AtomicBoolean();
+    when(moviesClient.retrieveMovieInfo("abc"))
+        .thenReturn(Mono.just(movieInfo).delayElement(Duration.ofMillis(100)));
+    when(reviewClient.getReviews("abc"))
+        .thenReturn(
+            Flux.just(new Review("1", 1L, "Awesome Movie", 9.0))
+                .doOnSubscribe(s -> reviewsSubscribed.set(true)));
+    // when
+    var movie = moviesService.getMovieById("abc");
+    // then
+    StepVerifier.create(movie)
+        .assertNext(
+            m -> {
+              assertTrue(reviewsSubscribed.get());
+              assertEquals("Batman Begins", m.getMovieInfo().getName());
+              assertEquals(1, m.getReviewList().size());
+            })
+        .verifyComplete();
+  }
+
+  @Test
+  void getMovieById_parallel_cancelsReviewsOnInfoError() {
+    // given
+    var reviewsCancelled = new AtomicBoolean();
+    when(moviesClient.retrieveMovieInfo("abc"))
+        .thenReturn(Mono.error(new MoviesInfoClientException("There is no movieinfo", 404)));
+    when(reviewClient.getReviews("abc"))
+        .thenReturn(Flux.<Review>never().doOnCancel(() -> reviewsCancelled.set(true)));
+    // when
+    var movie = moviesService.getMovieById("abc");
+    // then
+    StepVerifier.create(movie).expectError(MoviesInfoClientException.class).verify();
+    assertTrue(reviewsCancelled.get());
+  }
+
+  @Test
+  void getMovieById_reviewsOverBudget() {
+    // given
+    when(moviesClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+    when(reviewClient.getReviews("abc")).thenReturn(Flux.never());
+    // when
+    var movie = moviesService.getMovieById("abc");
+    // then
+    StepVerifier.create(movie)
+        .assertNext(
+            m -> {
+              assertTrue(m.isReviewsOmitted());
+              assertEquals("Batman Begins", m.getMovieInfo().getName());
+              assertTrue(m.getReviewList().isEmpty());
+            })
+        .verifyComplete();
+    assertEquals(
+        1, meterRegistry.counter("movies.reviews.omitted", "reason", "TimeoutException").count());
+  }
+
+  @Test
+  void getMovieById_reviewsCircuitOpen() {
+    // given
+    ReflectionTestUtils.setField(moviesService, "aggregationMode", AggregationMode.SEQUENTIAL);
+    when(moviesClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+    when(reviewClient.getReviews("abc"))
+        .thenReturn(
+            Flux.error(
+                CallNotPermittedException.createCallNotPermittedException(
+                    CircuitBreaker.ofDefaults("reviews"))));
+    // when
+    var movie = moviesService.getMovieById("abc");
+    // then
+    StepVerifier.create(movie)
+        .assertNext(m -> assertTrue(m.isReviewsOmitted()))
+        .verifyComplete();
+  }
+
+  @Test
+  void getMovieById_reviewsFailure_notDegraded() {
+    // given
+    when(moviesClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+    when(reviewClient.getReviews("abc"))
+        .thenReturn(Flux.error(new ReviewsServerException("Review Service Not Available")));
+    // when
+    var movie = moviesService.getMovieById("abc");
+    // then
+    StepVerifier.create(movie).expectError(ReviewsServerException.class).verify();
+  }
+
+  @Test
+  void streamMovies_reviewUpdates() {
+    // given
+    when(movieInfoStreamHub.subscribe()).thenReturn(Flux.just(movieInfo));
+    when(reviewClient.getReviews("abc"))
+        .thenReturn(Flux.just(new Review("1", 1L, "Awesome Movie", 9.0)));
+    when(reviewClient.retrieveReviewStream())
+        .thenReturn(
+            Flux.just(
+                    new Review("2", 1L, "Excellent Movie", 8.0),
+                    new Review("3", 2L, "Unknown Movie", 1.0))
+                .delaySubscription(Duration.ofMillis(50)));
+    when(movieInfoReplica.lookup("1")).thenReturn(Mono.just(movieInfo));
+    when(reviewClient.getReviews("1"))
+        .thenReturn(
+            Flux.just(
+                new Review("1", 1L, "Awesome Movie", 9.0),
+                new Review("2", 1L, "Excellent Movie", 8.0)));
+    when(movieInfoReplica.lookup("2")).thenReturn(Mono.empty());
+    when(moviesClient.retrieveMovieInfo("2"))
+        .thenReturn(Mono.error(new MoviesInfoClientException("There is no movieinfo", 404)));
+    when(reviewClient.getReviews("2")).thenReturn(Flux.empty());
+    // when
+    var movies = moviesService.streamMovies(true);
+    // then
+    StepVerifier.create(movies)
+        .assertNext(m -> assertEquals(1, m.getReviewList().size()))
+        .assertNext(m -> assertEquals(2, m.getReviewList().size()))
+        .verifyComplete();
+  }
+
+  @Test
+  void streamMovies_failedReviewsDontEndTheStream() {
+    // given
+    var other = new MovieInfo("def", "The Dark Knight", 2008, List.of("Christian Bale"), null);
+    when(movieInfoStreamHub.subscribe()).thenReturn(Flux.just(movieInfo, other));
+    when(reviewClient.getReviews("abc"))
+        .thenReturn(Flux.error(new ReviewsServerException("Server Exception in ReviewsService")));
+    when(reviewClient.getReviews("def"))
+        .thenReturn(Flux.just(new Review("1", 2L, "Awesome Movie", 9.0)));
+    // when
+    var movies = moviesService.streamMovies(false);
+    // then
+    StepVerifier.create(movies)
+        .assertNext(m -> assertTrue(m.isReviewsOmitted()))
+        .assertNext(m -> assertEquals(1, m.getReviewList().size()))
+        .verifyComplete();
+    assertEquals(
+        1,
+        meterRegistry.counter("movies.reviews.omitted", "reason", "ReviewsServerException").count());
+  }
+
+  @Test
+  void streamMovies_slowConsumerDropsTheOldestReviewUpdates() {
+    // given
+    when(movieInfoStreamHub.subscribe()).thenReturn(Flux.empty());
+    when(reviewClient.retrieveReviewStream())
+        .thenReturn(Flux.range(0, 100).map(i -> new Review("1", 1L, "Awesome Movie", 9.0)));
+    when(movieInfoReplica.lookup("1"))
+        .thenReturn(Mono.just(movieInfo).delayElement(Duration.ofMillis(10)));
+    when(reviewClient.getReviews("1")).thenReturn(Flux.empty());
+    // when
+    var movies = moviesService.streamMovies(true);
+    // then
+    var emitted = new AtomicInteger();
+    StepVerifier.create(movies, 0)
+        .thenRequest(Long.MAX_VALUE)
+        .thenConsumeWhile(movie -> emitted.incrementAndGet() > 0)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    assertTrue(emitted.get() < 100);
+    assertEquals(100 - emitted.get(), meterRegistry.counter("movies.stream.overflow").count());
+  }
+
+  @Test
+  void getMovieById_reviewSummary() {
+    // given
+    ReflectionTestUtils.setField(moviesService, "reviewsMode", ReviewsMode.SUMMARY);
+    ReflectionTestUtils.setField(moviesService, "recentReviews", 1);
+    var recent = new Review("2", 1L, "Excellent Movie", 8.0);
+    when(moviesClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+    when(reviewClient.getReviewSummary("abc", 1))
+        .thenReturn(
+            Mono.just(
+                new ReviewSummary(
+                    1L, 20000L, 8.5, Map.of(8, 10000L, 9, 10000L), List.of(recent))));
+    // when
+    var movie = moviesService.getMovieById("abc");
+    // then
+    StepVerifier.create(movie)
+        .assertNext(
+            m -> {
+              assertNull(m.getReviewList());
+              assertEquals(20000L, m.getReviewSummary().getCount());
+              assertEquals(List.of(recent), m.getReviewSummary().getRecentReviews());
+            })
+        .verifyComplete();
+  }
+}
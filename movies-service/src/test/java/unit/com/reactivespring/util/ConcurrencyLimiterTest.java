@@ -0,0 +1,140 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(meterRegistry);
+  ClientRequest request =
+      ClientRequest.create(HttpMethod.GET, URI.create("http://localhost:8080/v1/movieinfos/abc"))
+          .build();
+  Queue<Sinks.One<ClientResponse>> responses = new ArrayDeque<>();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(concurrencyLimiter, "enabled", true);
+    ReflectionTestUtils.setField(concurrencyLimiter, "initialLimit", 1);
+    ReflectionTestUtils.setField(concurrencyLimiter, "minLimit", 1);
+    ReflectionTestUtils.setField(concurrencyLimiter, "maxLimit", 1);
+    ReflectionTestUtils.setField(concurrencyLimiter, "probeInterval", 0);
+    ReflectionTestUtils.setField(concurrencyLimiter, "maxQueueSize", 1);
+    ReflectionTestUtils.setField(concurrencyLimiter, "maxQueueWait", Duration.ofSeconds(5));
+  }
+
+  Mono<ClientResponse> call() {
+    return concurrencyLimiter
+        .filter("moviesInfo")
+        .filter(
+            request,
+            req -> {
+              var response = Sinks.<ClientResponse>one();
+              responses.add(response);
+              return response.asMono();
+            });
+  }
+
+  double gauge(String name) {
+    return meterRegistry.get(name).tag("client", "moviesInfo").gauge().value();
+  }
+
+  @Test
+  void filter_queuesOverTheLimitAndRejectsWhenTheQueueIsFull() {
+    // given
+    var first = call().subscribe();
+    var second = call().map(ClientResponse::statusCode).toFuture();
+    // when
+    // then
+    assertEquals(1, gauge("movies.client.limit.inflight"));
+    assertEquals(1, gauge("movies.client.limit.queue"));
+    StepVerifier.create(call()).expectError(ConcurrencyLimitExceededException.class).verify();
+    responses.poll().tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+    assertEquals(0, gauge("movies.client.limit.queue"));
+    responses.poll().tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+    assertEquals(HttpStatus.OK, second.join());
+    assertEquals(0, gauge("movies.client.limit.inflight"));
+    assertEquals(
+        1,
+        meterRegistry
+            .counter(
+                "movies.client.limit.rejected", "client", "moviesInfo", "reason", "queue_full")
+            .count());
+    first.dispose();
+  }
+
+  @Test
+  void filter_queuedCallTimesOutAndGivesUpItsPlace() {
+    // given
+    ReflectionTestUtils.setField(concurrencyLimiter, "maxQueueWait", Duration.ofMillis(50));
+    var first = call().subscribe();
+    // when
+    // then
+    StepVerifier.create(call()).expectError(ConcurrencyLimitExceededException.class).verify();
+    assertEquals(0, gauge("movies.client.limit.queue"));
+    first.dispose();
+    assertEquals(0, gauge("movies.client.limit.inflight"));
+  }
+
+  @Test
+  void adaptiveLimit_growsWhileRttStaysFlat() {
+    // given
+    var limit = new AdaptiveLimit(10, 1, 100, 0);
+    // when
+    for (var i = 0; i < 20; i++) {
+      limit.onSample(Duration.ofMillis(10).toNanos(), limit.getLimit(), false);
+    }
+    // then
+    assertTrue(limit.getLimit() > 20, "limit " + limit.getLimit());
+  }
+
+  @Test
+  void adaptiveLimit_shrinksWhenRttGrows() {
+    // given
+    var limit = new AdaptiveLimit(50, 1, 100, 0);
+    limit.onSample(Duration.ofMillis(10).toNanos(), 50, false);
+    // when
+    for (var i = 0; i < 10; i++) {
+      limit.onSample(Duration.ofMillis(40).toNanos(), limit.getLimit(), false);
+    }
+    // then
+    assertTrue(limit.getLimit() < 40, "limit " + limit.getLimit());
+  }
+
+  @Test
+  void adaptiveLimit_backsOffOnDrops() {
+    // given
+    var limit = new AdaptiveLimit(50, 1, 100, 0);
+    // when
+    limit.onSample(Duration.ofMillis(10).toNanos(), 50, true);
+    // then
+    assertEquals(45, limit.getLimit());
+  }
+
+  @Test
+  void adaptiveLimit_unchangedWhenTheCallerIsNotPushing() {
+    // given
+    var limit = new AdaptiveLimit(50, 1, 100, 0);
+    // when
+    limit.onSample(Duration.ofMillis(10).toNanos(), 5, false);
+    // then
+    assertEquals(50, limit.getLimit());
+  }
+}
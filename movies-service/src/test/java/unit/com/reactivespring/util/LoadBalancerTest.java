@@ -0,0 +1,147 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.LoadBalancerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LoadBalancerTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  LoadBalancerProperties balancerProperties = new LoadBalancerProperties();
+  LoadBalancer loadBalancer = new LoadBalancer(balancerProperties, meterRegistry);
+  ClientRequest request =
+      ClientRequest.create(
+              HttpMethod.GET, URI.create("http://localhost:8080/v1/movieinfos/abc?fields=name"))
+          .build();
+  List<URI> routed = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    balancerProperties.setInstances(
+        Map.of(
+            "moviesInfo",
+            List.of(URI.create("http://localhost:9001"), URI.create("http://localhost:9002"))));
+  }
+
+  Mono<ClientResponse> call(ExchangeFunction exchange) {
+    return call(request, exchange);
+  }
+
+  Mono<ClientResponse> call(ClientRequest request, ExchangeFunction exchange) {
+    return loadBalancer
+        .filter("moviesInfo")
+        .filter(
+            request,
+            req -> {
+              routed.add(req.url());
+              return exchange.exchange(req);
+            });
+  }
+
+  double gauge(String name, String instance) {
+    return meterRegistry
+        .get(name)
+        .tag("client", "moviesInfo")
+        .tag("instance", instance)
+        .gauge()
+        .value();
+  }
+
+  @Test
+  void filter_sendsTheCallToTheInstanceWithFewerInFlight() {
+    // given
+    var first = Sinks.<ClientResponse>one();
+    call(req -> first.asMono()).subscribe();
+    // when
+    call(req -> Sinks.<ClientResponse>one().asMono()).subscribe();
+    // then
+    assertNotEquals(routed.get(0).getPort(), routed.get(1).getPort());
+    assertEquals("/v1/movieinfos/abc", routed.get(0).getPath());
+    assertEquals("fields=name", routed.get(0).getQuery());
+    assertEquals(1, gauge("movies.client.balancer.inflight", "localhost:9001"));
+    assertEquals(1, gauge("movies.client.balancer.inflight", "localhost:9002"));
+    first.tryEmitValue(ClientResponse.create(HttpStatus.OK).build());
+    assertEquals(
+        0, gauge("movies.client.balancer.inflight", "localhost:" + routed.get(0).getPort()));
+  }
+
+  @Test
+  void filter_ejectsAnInstanceAfterConsecutiveErrors() {
+    // given
+    balancerProperties.setConsecutiveErrors(1);
+    ExchangeFunction unavailable =
+        req -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+    call(unavailable).block();
+    var ejected = "localhost:" + routed.get(0).getPort();
+    // when
+    for (var i = 0; i < 5; i++) {
+      call(unavailable).block();
+    }
+    // then
+    assertEquals(1, gauge("movies.client.balancer.ejected", ejected));
+    routed.subList(1, routed.size()).forEach(url -> assertNotEquals(ejected, url.getAuthority()));
+    // the other instance failing too is kept, half of the instances at most are ejected
+    assertEquals(
+        1,
+        meterRegistry.find("movies.client.balancer.ejections").counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum());
+  }
+
+  @Test
+  void filter_pinnedCallsStayOnTheirInstance() {
+    // given
+    var pin = new AtomicReference<URI>();
+    var pinned = ClientRequest.from(request).attribute(LoadBalancer.PIN_ATTRIBUTE, pin).build();
+    // when
+    for (var i = 0; i < 5; i++) {
+      call(pinned, req -> Sinks.<ClientResponse>one().asMono()).subscribe();
+    }
+    // then
+    assertEquals(pin.get().getAuthority(), routed.get(0).getAuthority());
+    routed.forEach(url -> assertEquals(pin.get().getAuthority(), url.getAuthority()));
+  }
+
+  @Test
+  void filter_pinnedCallToAnEjectedInstanceIsGone() {
+    // given
+    balancerProperties.setConsecutiveErrors(1);
+    var pin = new AtomicReference<>(URI.create("http://localhost:9001"));
+    var pinned = ClientRequest.from(request).attribute(LoadBalancer.PIN_ATTRIBUTE, pin).build();
+    call(pinned, req -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()))
+        .block();
+    // when
+    var response = call(pinned, req -> Mono.just(ClientResponse.create(HttpStatus.OK).build()));
+    // then
+    assertEquals(HttpStatus.GONE, response.block().statusCode());
+    assertEquals(1, routed.size());
+    assertNull(pin.get());
+  }
+
+  @Test
+  void filter_callsTheConfiguredHostWithoutInstances() {
+    // given
+    balancerProperties.setInstances(Map.of());
+    // when
+    call(req -> Mono.just(ClientResponse.create(HttpStatus.OK).build())).block();
+    // then
+    assertEquals(request.url(), routed.get(0));
+  }
+}
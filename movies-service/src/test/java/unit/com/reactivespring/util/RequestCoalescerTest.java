@@ -0,0 +1,96 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry);
+  AtomicInteger upstreamCalls = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(requestCoalescer, "enabled", true);
+  }
+
+  Mono<String> slowCall() {
+    return Mono.fromSupplier(() -> "movie-" + upstreamCalls.incrementAndGet())
+        .delayElement(Duration.ofMillis(100));
+  }
+
+  @Test
+  void coalesce_concurrentCallsShareOneUpstreamCall() {
+    // given
+    var calls =
+        Flux.range(0, 10)
+            .flatMap(i -> requestCoalescer.coalesce("moviesInfo", "/v1/movieinfos/abc", this::slowCall));
+    // when
+    // then
+    StepVerifier.create(calls).expectNextCount(10).verifyComplete();
+    assertEquals(1, upstreamCalls.get());
+    assertEquals(
+        10, meterRegistry.counter("movies.client.coalescing.requests", "client", "moviesInfo").count());
+    assertEquals(
+        1, meterRegistry.counter("movies.client.coalescing.executions", "client", "moviesInfo").count());
+  }
+
+  // times out like the deadline filter does on a real call
+  Mono<String> callWithDeadline() {
+    return Mono.deferContextual(
+        context ->
+            slowCall()
+                .timeout(
+                    context.get(Deadline.class).remaining(), Mono.error(new TimeoutException())));
+  }
+
+  Mono<String> coalesceWithin(Duration timeout) {
+    return requestCoalescer
+        .coalesce("moviesInfo", "/v1/movieinfos/abc", this::callWithDeadline)
+        .contextWrite(context -> context.put(Deadline.class, Deadline.after(timeout)));
+  }
+
+  @Test
+  void coalesce_laterDeadlineDoesNotJoinAnEarlierOne() {
+    // given
+    var calls =
+        Flux.merge(
+            coalesceWithin(Duration.ofMillis(50)).onErrorReturn("timed out"),
+            coalesceWithin(Duration.ofSeconds(5)));
+    // when
+    // then
+    StepVerifier.create(calls).expectNext("timed out", "movie-2").verifyComplete();
+    assertEquals(2, upstreamCalls.get());
+  }
+
+  @Test
+  void coalesce_earlierDeadlineJoinsALaterOne() {
+    // given
+    var calls =
+        Flux.merge(coalesceWithin(Duration.ofSeconds(5)), coalesceWithin(Duration.ofMillis(500)));
+    // when
+    // then
+    StepVerifier.create(calls).expectNext("movie-1", "movie-1").verifyComplete();
+    assertEquals(1, upstreamCalls.get());
+  }
+
+  @Test
+  void coalesce_sequentialCallsAreNotServedStale() {
+    // given
+    var call = requestCoalescer.coalesce("moviesInfo", "/v1/movieinfos/abc", this::slowCall);
+    // when
+    // then
+    StepVerifier.create(call).expectNext("movie-1").verifyComplete();
+    StepVerifier.create(call).expectNext("movie-2").verifyComplete();
+  }
+}
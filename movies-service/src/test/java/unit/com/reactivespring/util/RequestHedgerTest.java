@@ -0,0 +1,86 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHedgerTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  RequestHedger requestHedger = new RequestHedger(meterRegistry);
+  AtomicInteger calls = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(requestHedger, "enabled", true);
+    ReflectionTestUtils.setField(requestHedger, "percentile", 0.95);
+    ReflectionTestUtils.setField(requestHedger, "minDelay", Duration.ofMillis(20));
+    ReflectionTestUtils.setField(requestHedger, "defaultDelay", Duration.ofMillis(50));
+    ReflectionTestUtils.setField(requestHedger, "budgetRatio", 0.05);
+    ReflectionTestUtils.setField(requestHedger, "budgetMaxTokens", 1.0);
+  }
+
+  @Test
+  void hedge_slowFirstCallLosesToTheHedge() {
+    // given
+    var firstCancelled = new AtomicBoolean();
+    var call =
+        requestHedger.hedge(
+            "moviesInfo",
+            () ->
+                calls.incrementAndGet() == 1
+                    ? Mono.just("slow")
+                        .delayElement(Duration.ofSeconds(5))
+                        .doOnCancel(() -> firstCancelled.set(true))
+                    : Mono.just("fast"));
+    // when
+    // then
+    StepVerifier.create(call).expectNext("fast").verifyComplete();
+    assertTrue(firstCancelled.get());
+    assertEquals(
+        1, meterRegistry.counter("movies.client.hedges", "client", "moviesInfo", "result", "won").count());
+  }
+
+  @Test
+  void hedge_failedHedgeLeavesTheFirstCallRunning() {
+    // given
+    var call =
+        requestHedger.hedge(
+            "moviesInfo",
+            () ->
+                calls.incrementAndGet() == 1
+                    ? Mono.just("slow").delayElement(Duration.ofMillis(300))
+                    : Mono.error(new ConcurrencyLimitExceededException("limit reached")));
+    // when
+    // then
+    StepVerifier.create(call).expectNext("slow").verifyComplete();
+    assertEquals(2, calls.get());
+    assertEquals(
+        1,
+        meterRegistry
+            .counter("movies.client.hedges", "client", "moviesInfo", "result", "failed")
+            .count());
+  }
+
+  @Test
+  void hedge_fastCallIsNotHedged() {
+    // given
+    var call =
+        requestHedger.hedge(
+            "moviesInfo", () -> Mono.fromSupplier(() -> "fast-" + calls.incrementAndGet()));
+    // when
+    // then
+    StepVerifier.create(call).expectNext("fast-1").verifyComplete();
+    assertEquals(1, calls.get());
+  }
+}
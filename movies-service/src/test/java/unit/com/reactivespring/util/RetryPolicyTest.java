@@ -0,0 +1,65 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryPolicyTest {
+  SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  RetryPolicy retryPolicy = new RetryPolicy(meterRegistry);
+  AtomicInteger attempts = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(retryPolicy, "maxAttempts", 3);
+    ReflectionTestUtils.setField(retryPolicy, "baseBackoff", Duration.ofMillis(10));
+    ReflectionTestUtils.setField(retryPolicy, "maxBackoff", Duration.ofMillis(50));
+    ReflectionTestUtils.setField(retryPolicy, "budgetRatio", 0.1);
+    ReflectionTestUtils.setField(retryPolicy, "budgetMaxTokens", 2.0);
+  }
+
+  Mono<String> failingCall() {
+    return Mono.defer(
+        () -> {
+          attempts.incrementAndGet();
+          return Mono.error(new MoviesInfoServerException("MovieInfo service unavailable"));
+        });
+  }
+
+  @Test
+  void retrySpec_retriesAreCappedByTheBudget() {
+    // given
+    var call = failingCall().retryWhen(retryPolicy.retrySpec("moviesInfo"));
+    // when
+    // then
+    StepVerifier.create(call).expectError(MoviesInfoServerException.class).verify();
+    assertEquals(3, attempts.get());
+    assertEquals(
+        1,
+        meterRegistry
+            .counter("movies.client.retries", "client", "moviesInfo", "result", "suppressed_budget")
+            .count());
+  }
+
+  @Test
+  void retrySpec_noRetryPastTheDeadline() {
+    // given
+    var call =
+        failingCall()
+            .retryWhen(retryPolicy.retrySpec("moviesInfo"))
+            .contextWrite(context -> context.put(Deadline.class, Deadline.after(Duration.ZERO)));
+    // when
+    // then
+    StepVerifier.create(call).expectError(MoviesInfoServerException.class).verify();
+    assertEquals(1, attempts.get());
+  }
+}
@@ -0,0 +1,114 @@
+package com.reactivespring.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.reactivespring.exception.MoviesInfoServerException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignalLoggerTest {
+  SignalLogger signalLogger = new SignalLogger();
+  Logger logger = (Logger) LoggerFactory.getLogger("signals.test");
+  ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(signalLogger, "sampleRate", 1.0);
+    ReflectionTestUtils.setField(signalLogger, "slowThreshold", Duration.ofMillis(50));
+    appender.start();
+    logger.addAppender(appender);
+    logger.setLevel(Level.INFO);
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+    logger.setLevel(null);
+  }
+
+  @Test
+  void flux_fastSubscriptionNotLoggedAtInfo() {
+    // given
+    var flux = Flux.range(0, 10).transform(signalLogger.flux("test"));
+    // when
+    // then
+    StepVerifier.create(flux).expectNextCount(10).verifyComplete();
+    assertTrue(appender.list.isEmpty());
+  }
+
+  @Test
+  void flux_failedAndSlowSubscriptionsLogged() {
+    // given
+    var failed =
+        Flux.just(1)
+            .concatWith(Flux.error(new MoviesInfoServerException("MovieInfo service unavailable")))
+            .transform(signalLogger.flux("test"));
+    // blocking on the test thread, so the summary is written before verify returns
+    var slow =
+        Mono.fromCallable(
+                () -> {
+                  Thread.sleep(100);
+                  return 1;
+                })
+            .transform(signalLogger.mono("test"));
+    // when
+    // then
+    StepVerifier.create(failed).expectNext(1).expectError().verify();
+    StepVerifier.create(slow).expectNext(1).verifyComplete();
+    assertEquals(2, appender.list.size());
+    assertTrue(appender.list.get(0).getFormattedMessage().contains("MovieInfo service unavailable"));
+    assertTrue(appender.list.get(1).getFormattedMessage().startsWith("onComplete"));
+  }
+
+  @Test
+  void flux_sampledAtDebug() {
+    // given
+    logger.setLevel(Level.DEBUG);
+    var flux = Flux.range(0, 10).transform(signalLogger.flux("test"));
+    // when
+    // then
+    StepVerifier.create(flux).expectNextCount(10).verifyComplete();
+    assertEquals(1, appender.list.size());
+    assertTrue(appender.list.get(0).getFormattedMessage().contains("10 elements"));
+  }
+
+  @Test
+  void flux_everySignalAtTrace() {
+    // given
+    logger.setLevel(Level.TRACE);
+    var flux = Flux.range(0, 10).transform(signalLogger.flux("test"));
+    // when
+    // then
+    StepVerifier.create(flux).expectNextCount(10).verifyComplete();
+    // onSubscribe, request, 10 x onNext and onComplete
+    assertEquals(13, appender.list.size());
+  }
+
+  @Test
+  void flux_levelChangeAppliesToTheNextSubscription() {
+    // given
+    var flux =
+        Flux.<Integer>error(new MoviesInfoServerException("MovieInfo service unavailable"))
+            .transform(signalLogger.flux("test"));
+    // when
+    logger.setLevel(Level.OFF);
+    StepVerifier.create(flux).expectError().verify();
+    logger.setLevel(Level.INFO);
+    StepVerifier.create(flux).expectError().verify();
+    // then
+    assertEquals(1, appender.list.size());
+  }
+}